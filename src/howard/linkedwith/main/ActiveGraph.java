@@ -0,0 +1,61 @@
+/**
+ *
+ */
+package main;
+
+/**
+ * Active graph is the view of the users of a social network by their ordinals
+ * that traversals run on, exposing for each user a row of neighbors along with
+ * whether the link to each neighbor is active at the date of the view.
+ *
+ * @author Shaun Howard
+ */
+abstract class ActiveGraph {
+
+	/**
+	 * Gets the number of users in the graph.
+	 *
+	 * @return the number of users in the graph
+	 */
+	abstract int userCount();
+
+	/**
+	 * Gets the number of entries in the rows of all users, which counts every
+	 * link twice and may include links that are not active.
+	 *
+	 * @return the number of entries in the rows
+	 */
+	abstract long edgeCount();
+
+	/**
+	 * Gets the number of neighbors in the row of the given user.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return the number of neighbors in the row of the user
+	 */
+	abstract int degree(int user);
+
+	/**
+	 * Gets the neighbor at the given position of the row of a user.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param position
+	 *            - the position in the row, below the degree of the user
+	 * @return the ordinal of the neighbor
+	 */
+	abstract int neighbor(int user, int position);
+
+	/**
+	 * Returns whether the link at the given position of the row of a user is
+	 * active at the date of the view.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param position
+	 *            - the position in the row, below the degree of the user
+	 * @return whether the link to the neighbor is active
+	 */
+	abstract boolean isActive(int user, int position);
+}
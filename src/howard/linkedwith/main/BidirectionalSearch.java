@@ -0,0 +1,243 @@
+/**
+ *
+ */
+package main;
+
+/**
+ * Bidirectional search finds how far apart two users are by running a breadth
+ * first traversal from each of them at once, always expanding a whole level of
+ * the side with the smaller frontier, and stopping at the level where the two
+ * traversals meet.
+ *
+ * On graphs where most users are a few links apart, each side only reaches
+ * about the square root of the users a single traversal would reach.
+ *
+ * @author Shaun Howard
+ */
+final class BidirectionalSearch {
+
+	// Distance returned when the users are not within reach.
+	static final int UNREACHABLE = -1;
+
+	/**
+	 * Prevents creating bidirectional searches, which only has static methods.
+	 */
+	private BidirectionalSearch() {
+	}
+
+	/**
+	 * Finds the distance between two users over the active links of the given
+	 * graph.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the search
+	 * @param from
+	 *            - the ordinal of one user
+	 * @param to
+	 *            - the ordinal of the other user
+	 * @param distance_max
+	 *            - the greatest distance to search to
+	 * @return the distance between the users or UNREACHABLE when they are
+	 *         further apart than the max distance
+	 */
+	static int distance(ActiveGraph graph, int from, int to, int distance_max) {
+		TraversalScratch forward = TraversalScratch.acquire(graph.userCount());
+		TraversalScratch backward = TraversalScratch.acquire(graph.userCount());
+
+		try {
+			return search(graph, from, to, distance_max, forward, backward, null);
+		} finally {
+			forward.release();
+			backward.release();
+		}
+	}
+
+	/**
+	 * Finds a shortest path between two users over the active links of the
+	 * given graph, recording the user each user was reached from on both
+	 * sides and following those back from the link where the sides met.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the search
+	 * @param from
+	 *            - the ordinal of the user the path starts at
+	 * @param to
+	 *            - the ordinal of the user the path ends at
+	 * @param distance_max
+	 *            - the greatest number of links the path may take
+	 * @return the ordinals of the users along the path from one user to the
+	 *         other, or an empty array when they are further apart than the
+	 *         max distance
+	 */
+	static int[] path(ActiveGraph graph, int from, int to, int distance_max) {
+		TraversalScratch forward = TraversalScratch.acquire(graph.userCount());
+		TraversalScratch backward = TraversalScratch.acquire(graph.userCount());
+		int[] meetingLink = new int[2];
+		int[] path;
+		int length, user;
+
+		try {
+			length = search(graph, from, to, distance_max, forward, backward, meetingLink);
+			if (length == UNREACHABLE) {
+				return new int[0];
+			}
+
+			path = new int[length + 1];
+			if (length == 0) {
+				path[0] = from;
+				return path;
+			}
+
+			// Follow the parents of the forward side back to the first user.
+			user = meetingLink[0];
+			for (int index = forward.distance(user); index >= 0; index--) {
+				path[index] = user;
+				user = forward.parent(user);
+			}
+
+			// Follow the parents of the backward side on to the last user.
+			user = meetingLink[1];
+			for (int index = length - backward.distance(user); index <= length; index++) {
+				path[index] = user;
+				user = backward.parent(user);
+			}
+
+			return path;
+		} finally {
+			forward.release();
+			backward.release();
+		}
+	}
+
+	/**
+	 * Runs the search from both users until the sides meet or may no longer
+	 * meet within the max distance.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the search
+	 * @param from
+	 *            - the ordinal of one user
+	 * @param to
+	 *            - the ordinal of the other user
+	 * @param distance_max
+	 *            - the greatest distance to search to
+	 * @param forward
+	 *            - the traversal scratch of the side from the first user
+	 * @param backward
+	 *            - the traversal scratch of the side from the other user
+	 * @param meetingLink
+	 *            - the array to record the users of the forward and backward
+	 *            sides at the ends of the link where the sides met, which
+	 *            also records the parents of the users, or null to only find
+	 *            the distance
+	 * @return the distance between the users or UNREACHABLE when they are
+	 *         further apart than the max distance
+	 */
+	private static int search(ActiveGraph graph, int from, int to, int distance_max,
+			TraversalScratch forward, TraversalScratch backward, int[] meetingLink) {
+		int forwardStart = 0;
+		int backwardStart = 0;
+		int forwardDepth = 0;
+		int backwardDepth = 0;
+		int levelEnd;
+		int meeting = Integer.MAX_VALUE;
+
+		if (from == to) {
+			return 0;
+		}
+
+		if (meetingLink == null) {
+			forward.visit(from, 0);
+			backward.visit(to, 0);
+		} else {
+			forward.visit(from, 0, from);
+			backward.visit(to, 0, to);
+		}
+
+		// Expand a level while both sides have a frontier and may still meet.
+		while (forwardStart < forward.reached() && backwardStart < backward.reached()
+				&& forwardDepth + backwardDepth < distance_max
+				&& meeting == Integer.MAX_VALUE) {
+
+			if (forward.reached() - forwardStart <= backward.reached() - backwardStart) {
+				levelEnd = forward.reached();
+				meeting = expandLevel(graph, forward, forwardStart, levelEnd, backward,
+						meetingLink, 0);
+				forwardStart = levelEnd;
+				forwardDepth++;
+			} else {
+				levelEnd = backward.reached();
+				meeting = expandLevel(graph, backward, backwardStart, levelEnd, forward,
+						meetingLink, 1);
+				backwardStart = levelEnd;
+				backwardDepth++;
+			}
+		}
+
+		return meeting <= distance_max ? meeting : UNREACHABLE;
+	}
+
+	/**
+	 * Expands the users of one level of a side of the search, visiting every
+	 * user they are actively linked to that the side has not reached yet, and
+	 * finds the shortest path through an edge to a user reached by the other
+	 * side.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the search
+	 * @param side
+	 *            - the traversal scratch of the side to expand
+	 * @param start
+	 *            - the index of the first user of the level
+	 * @param end
+	 *            - the index after the last user of the level
+	 * @param other
+	 *            - the traversal scratch of the other side
+	 * @param meetingLink
+	 *            - the array to record the ends of the link of the shortest
+	 *            path found and to record parents by, or null
+	 * @param sideEnd
+	 *            - the index of the end of the meeting link on this side, 0
+	 *            for the forward side and 1 for the backward side
+	 * @return the length of the shortest path found through the level or
+	 *         Integer.MAX_VALUE when the sides did not meet
+	 */
+	private static int expandLevel(ActiveGraph graph, TraversalScratch side, int start, int end,
+			TraversalScratch other, int[] meetingLink, int sideEnd) {
+		int meeting = Integer.MAX_VALUE;
+		int user, distance, linkedUser;
+
+		for (int index = start; index < end; index++) {
+			user = side.reachedUser(index);
+			distance = side.distance(user) + 1;
+
+			for (int position = 0; position < graph.degree(user); position++) {
+				linkedUser = graph.neighbor(user, position);
+
+				if (side.isVisited(linkedUser) && !other.isVisited(linkedUser)) {
+					continue;
+				}
+				if (!graph.isActive(user, position)) {
+					continue;
+				}
+
+				if (other.isVisited(linkedUser)
+						&& distance + other.distance(linkedUser) < meeting) {
+					meeting = distance + other.distance(linkedUser);
+					if (meetingLink != null) {
+						meetingLink[sideEnd] = user;
+						meetingLink[1 - sideEnd] = linkedUser;
+					}
+				}
+
+				if (meetingLink == null) {
+					side.visit(linkedUser, distance);
+				} else {
+					side.visit(linkedUser, distance, user);
+				}
+			}
+		}
+
+		return meeting;
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ *
+ */
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Bounded heap keeps the greatest of the longs offered to it, up to a fixed
+ * number of them, in a binary min heap whose root is the least value kept.
+ * A value is kept only when the heap has room or the value is greater than
+ * the root, which it then replaces, so offering n values takes O(n log k)
+ * time and O(k) space for k kept values.
+ *
+ * Callers pack a score in the high bits and a tie breaker in the low bits of
+ * each value, so that the values order the same way as the entries they stand
+ * for.
+ *
+ * @author Shaun Howard
+ */
+final class BoundedHeap {
+
+	// Values kept in the heap, the least at the root.
+	private final long[] values;
+
+	// Number of values kept.
+	private int size;
+
+	/**
+	 * Constructor to create an empty heap keeping up to the given number of
+	 * values.
+	 *
+	 * @param capacity
+	 *            - the most values to keep
+	 */
+	BoundedHeap(int capacity) {
+		this.values = new long[Math.max(capacity, 0)];
+		this.size = 0;
+	}
+
+	/**
+	 * Offers a value to the heap, which keeps it when there is room or it is
+	 * greater than the least value kept.
+	 *
+	 * @param value
+	 *            - the value to offer
+	 */
+	void offer(long value) {
+		if (size < values.length) {
+			values[size] = value;
+			siftUp(size++);
+		} else if (size > 0 && value > values[0]) {
+			values[0] = value;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Offers every value kept by the given heap to this heap.
+	 *
+	 * @param heap
+	 *            - the heap to offer the values of
+	 */
+	void offerAll(BoundedHeap heap) {
+		for (int index = 0; index < heap.size; index++) {
+			offer(heap.values[index]);
+		}
+	}
+
+	/**
+	 * Copies the values kept from the greatest to the least.
+	 *
+	 * @return the values kept in descending order
+	 */
+	long[] toDescendingArray() {
+		long[] sorted = Arrays.copyOf(values, size);
+		long value;
+
+		Arrays.sort(sorted);
+		for (int index = 0; index < size / 2; index++) {
+			value = sorted[index];
+			sorted[index] = sorted[size - 1 - index];
+			sorted[size - 1 - index] = value;
+		}
+		return sorted;
+	}
+
+	/**
+	 * Moves the value at the given index up until its parent is not greater.
+	 *
+	 * @param index
+	 *            - the index of the value
+	 */
+	private void siftUp(int index) {
+		long value = values[index];
+		int parent;
+
+		while (index > 0) {
+			parent = (index - 1) >>> 1;
+			if (values[parent] <= value) {
+				break;
+			}
+			values[index] = values[parent];
+			index = parent;
+		}
+		values[index] = value;
+	}
+
+	/**
+	 * Moves the value at the given index down until no child is less.
+	 *
+	 * @param index
+	 *            - the index of the value
+	 */
+	private void siftDown(int index) {
+		long value = values[index];
+		int child;
+
+		while ((child = 2 * index + 1) < size) {
+			if (child + 1 < size && values[child + 1] < values[child]) {
+				child++;
+			}
+			if (value <= values[child]) {
+				break;
+			}
+			values[index] = values[child];
+			index = child;
+		}
+		values[index] = value;
+	}
+}
@@ -0,0 +1,168 @@
+/**
+ *
+ */
+package main;
+
+/**
+ * Breadth first search reaches every user within a max distance of a source
+ * user over the active links of a graph, one level of distance at a time.
+ *
+ * Each level is expanded in one of two directions. Top down, every user of the
+ * frontier visits the users it is linked to. Bottom up, every user not yet
+ * reached looks for a link to a user of the frontier and stops at the first.
+ * Top down is cheaper while the frontier is small; once the frontier holds
+ * more edges than the unreached users, most top down checks would find users
+ * already reached, and bottom up is cheaper until the frontier shrinks again.
+ *
+ * Either direction of a level may be expanded in parallel, for every level or
+ * only for levels with a large frontier, depending on the traversal mode. The
+ * users reached and their distances are the same either way.
+ *
+ * @author Shaun Howard
+ */
+final class BreadthFirstSearch {
+
+	// Switch to bottom up once the frontier has more than this fraction of the unexplored edges.
+	private static final int TOP_DOWN_FACTOR = 14;
+
+	// Switch back to top down once the frontier has less than this fraction of the users.
+	private static final int BOTTOM_UP_FACTOR = 24;
+
+	/**
+	 * Prevents creating breadth first searches, which only has static methods.
+	 */
+	private BreadthFirstSearch() {
+	}
+
+	/**
+	 * Reaches every user within the max distance of the source user, visiting
+	 * them in the given scratch in order of distance.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the search
+	 * @param source
+	 *            - the ordinal of the source user
+	 * @param distance_max
+	 *            - the greatest distance to reach users at
+	 * @param mode
+	 *            - the mode that decides which levels are expanded in parallel
+	 * @param scratch
+	 *            - the acquired traversal scratch to visit the users in
+	 */
+	static void traverse(ActiveGraph graph, int source, int distance_max, TraversalMode mode,
+			TraversalScratch scratch) {
+		ParallelBreadthFirstSearch parallel = null;
+		long unexploredEdges = graph.edgeCount();
+		long frontierEdges;
+		boolean bottomUp = false;
+		int levelStart = 0;
+		int levelEnd;
+
+		scratch.visit(source, 0);
+		frontierEdges = graph.degree(source);
+
+		for (int distance = 0; distance < distance_max && levelStart < scratch.reached(); distance++) {
+			levelEnd = scratch.reached();
+			unexploredEdges -= frontierEdges;
+
+			// Choose the direction of the level from the size of the frontier.
+			if (!bottomUp && frontierEdges > unexploredEdges / TOP_DOWN_FACTOR) {
+				bottomUp = true;
+			} else if (bottomUp && levelEnd - levelStart < graph.userCount() / BOTTOM_UP_FACTOR) {
+				bottomUp = false;
+			}
+
+			// Continue in parallel once the mode calls for it.
+			if (parallel == null && (mode == TraversalMode.PARALLEL
+					|| (mode == TraversalMode.AUTOMATIC
+					&& levelEnd - levelStart >= ParallelBreadthFirstSearch.PARALLEL_FRONTIER))) {
+				parallel = new ParallelBreadthFirstSearch(graph, scratch);
+			}
+
+			if (parallel != null && bottomUp) {
+				frontierEdges = parallel.bottomUpStep(distance);
+			} else if (parallel != null) {
+				frontierEdges = parallel.topDownStep(levelStart, levelEnd, distance);
+			} else if (bottomUp) {
+				frontierEdges = bottomUpStep(graph, distance, scratch);
+			} else {
+				frontierEdges = topDownStep(graph, levelStart, levelEnd, scratch);
+			}
+
+			levelStart = levelEnd;
+		}
+	}
+
+	/**
+	 * Expands a level top down: every user of the frontier visits each user it
+	 * is actively linked to that was not reached before.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the search
+	 * @param levelStart
+	 *            - the index of the first user of the frontier
+	 * @param levelEnd
+	 *            - the index after the last user of the frontier
+	 * @param scratch
+	 *            - the traversal scratch holding the reached users
+	 * @return the number of edges of the users reached by the step
+	 */
+	private static long topDownStep(ActiveGraph graph, int levelStart, int levelEnd,
+			TraversalScratch scratch) {
+		long reachedEdges = 0;
+		int user, distance, linkedUser;
+
+		for (int index = levelStart; index < levelEnd; index++) {
+			user = scratch.reachedUser(index);
+			distance = scratch.distance(user) + 1;
+
+			for (int position = 0; position < graph.degree(user); position++) {
+				linkedUser = graph.neighbor(user, position);
+
+				if (!scratch.isVisited(linkedUser) && graph.isActive(user, position)) {
+					scratch.visit(linkedUser, distance);
+					reachedEdges += graph.degree(linkedUser);
+				}
+			}
+		}
+
+		return reachedEdges;
+	}
+
+	/**
+	 * Expands a level bottom up: every user not yet reached visits itself when
+	 * it is actively linked to a user of the frontier at the given distance.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the search
+	 * @param distance
+	 *            - the distance of the users of the frontier
+	 * @param scratch
+	 *            - the traversal scratch holding the reached users
+	 * @return the number of edges of the users reached by the step
+	 */
+	private static long bottomUpStep(ActiveGraph graph, int distance,
+			TraversalScratch scratch) {
+		long reachedEdges = 0;
+		int linkedUser;
+
+		for (int user = 0; user < graph.userCount(); user++) {
+			if (scratch.isVisited(user)) {
+				continue;
+			}
+
+			for (int position = 0; position < graph.degree(user); position++) {
+				linkedUser = graph.neighbor(user, position);
+
+				if (scratch.isVisited(linkedUser) && scratch.distance(linkedUser) == distance
+						&& graph.isActive(user, position)) {
+					scratch.visit(user, distance + 1);
+					reachedEdges += graph.degree(user);
+					break;
+				}
+			}
+		}
+
+		return reachedEdges;
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ *
+ */
+package main;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Chunked task is work split into numbered chunks that are run across the
+ * threads of the common fork join pool, halving the range of chunks until a
+ * single chunk is left for each task.
+ *
+ * @author Shaun Howard
+ */
+abstract class ChunkedTask {
+
+	/**
+	 * Runs the work of the given chunk.
+	 *
+	 * @param chunk
+	 *            - the index of the chunk
+	 */
+	abstract void runChunk(int chunk);
+
+	/**
+	 * Runs every chunk of the work on the common fork join pool, returning once
+	 * all of them are done.
+	 *
+	 * @param chunks
+	 *            - the number of chunks
+	 */
+	final void invoke(int chunks) {
+		ForkJoinPool.commonPool().invoke(new Split(this, 0, chunks));
+	}
+
+	/**
+	 * Split runs a range of chunks of a task, splitting the range in half until
+	 * a single chunk is left.
+	 */
+	private static final class Split extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		// The task to run the chunks of.
+		private final ChunkedTask task;
+
+		// The first chunk of the range.
+		private final int firstChunk;
+
+		// The chunk after the last chunk of the range.
+		private final int endChunk;
+
+		Split(ChunkedTask task, int firstChunk, int endChunk) {
+			this.task = task;
+			this.firstChunk = firstChunk;
+			this.endChunk = endChunk;
+		}
+
+		@Override
+		protected void compute() {
+			int middle;
+
+			if (endChunk - firstChunk <= 1) {
+				for (int chunk = firstChunk; chunk < endChunk; chunk++) {
+					task.runChunk(chunk);
+				}
+				return;
+			}
+
+			middle = (firstChunk + endChunk) >>> 1;
+			invokeAll(new Split(task, firstChunk, middle), new Split(task, middle, endChunk));
+		}
+	}
+}
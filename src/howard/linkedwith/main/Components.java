@@ -0,0 +1,137 @@
+/**
+ *
+ */
+package main;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Components are the connected components of the users of a social network
+ * over the links active at a date, where every user belongs to exactly one
+ * component and a user without active links is a component of its own.
+ *
+ * Components are numbered from zero in order of the first user added to the
+ * social network within each of them, and are kept as an int array of the
+ * component of every user ordinal and an int array of the size of every
+ * component.
+ *
+ * @author Shaun Howard
+ */
+public final class Components {
+
+	// Component of each user by ordinal.
+	private final int[] componentOf;
+
+	// Number of users in each component.
+	private final int[] sizes;
+
+	// Smallest user ordinal in each component.
+	private final int[] firstUsers;
+
+	// Users of the social network by ordinal.
+	private final List<User> users;
+
+	// Ordinals of the users of the social network by id.
+	private final Map<String, Integer> ordinals;
+
+	/**
+	 * Constructor to create the components of the given users.
+	 *
+	 * @param componentOf
+	 *            - the component of each user by ordinal
+	 * @param sizes
+	 *            - the number of users in each component
+	 * @param firstUsers
+	 *            - the smallest user ordinal in each component
+	 * @param users
+	 *            - the users of the social network by ordinal
+	 * @param ordinals
+	 *            - the ordinals of the users of the social network by id
+	 */
+	Components(int[] componentOf, int[] sizes, int[] firstUsers, List<User> users,
+			Map<String, Integer> ordinals) {
+		this.componentOf = componentOf;
+		this.sizes = sizes;
+		this.firstUsers = firstUsers;
+		this.users = users;
+		this.ordinals = ordinals;
+	}
+
+	/**
+	 * Gets the number of components.
+	 *
+	 * @return the number of components
+	 */
+	public int count() {
+		return sizes.length;
+	}
+
+	/**
+	 * Gets the number of users in the given component.
+	 *
+	 * @param component
+	 *            - the number of the component, below the count
+	 * @return the number of users in the component
+	 */
+	public int size(int component) {
+		return sizes[component];
+	}
+
+	/**
+	 * Gets the component of the user of the given id.
+	 *
+	 * @param id
+	 *            - the id of the user
+	 * @return the number of the component of the user or -1 when the user is
+	 *         not in the social network
+	 */
+	public int componentOf(String id) {
+		Integer ordinal = ordinals.get(id);
+
+		if (ordinal == null || ordinal >= componentOf.length) {
+			return -1;
+		}
+		return componentOf[ordinal];
+	}
+
+	/**
+	 * Gets the number of users in the component of the user of the given id,
+	 * which is the size of the neighborhood of the user without a max
+	 * distance.
+	 *
+	 * @param id
+	 *            - the id of the user
+	 * @return the size of the component of the user or 0 when the user is not
+	 *         in the social network
+	 */
+	public int sizeOf(String id) {
+		int component = componentOf(id);
+
+		return component < 0 ? 0 : sizes[component];
+	}
+
+	/**
+	 * Gets the number of users in the component of the user of the given
+	 * ordinal.
+	 *
+	 * @param ordinal
+	 *            - the ordinal of the user, below the number of users
+	 * @return the size of the component of the user
+	 */
+	int sizeOfUser(int ordinal) {
+		return sizes[componentOf[ordinal]];
+	}
+
+	/**
+	 * Gets the user of the smallest ordinal in the given component, which is
+	 * the user added to the social network first among its users.
+	 *
+	 * @param component
+	 *            - the number of the component, below the count
+	 * @return the first user of the component
+	 */
+	public User firstUser(int component) {
+		return users.get(firstUsers[component]);
+	}
+}
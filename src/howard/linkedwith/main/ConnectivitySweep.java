@@ -0,0 +1,288 @@
+/**
+ *
+ */
+package main;
+
+/**
+ * Connectivity sweep finds the size of the connected component of a user at
+ * every instant of a range of the event timeline in a single pass, which is
+ * the size of the unbounded neighborhood of the user at each of those dates.
+ *
+ * Each interval of activity of a link covers a run of instants of the range,
+ * and is stored at the O(log n) nodes of a segment tree over the instants that
+ * exactly cover its run. A depth first walk of the tree merges the users of
+ * the links of each node it enters in a union find, reads the component size
+ * of the user at each leaf, and undoes the merges of a node on the way back
+ * out. The union find links the smaller component under the larger one and
+ * never compresses paths, so every merge is undone by restoring one root.
+ *
+ * @author Shaun Howard
+ */
+final class ConnectivitySweep {
+
+	// The table of the links of the social network.
+	private final LinkTable linkTable;
+
+	// Index of the first instant of the range.
+	private final int start;
+
+	// Number of instants in the range.
+	private final int length;
+
+	// Start of the links of each node of the segment tree, followed by the count.
+	private final int[] nodeOffsets;
+
+	// Links stored at the nodes of the segment tree.
+	private final int[] nodeLinks;
+
+	// Parent of each user in the union find, itself for a root.
+	private final int[] parents;
+
+	// Number of users in the component of each root.
+	private final int[] sizes;
+
+	// Roots merged under another root, in the order they were merged.
+	private final IntList merges = new IntList();
+
+	/**
+	 * Constructor to create a sweep over the given range of the event
+	 * timeline, placing the interval of every link active within the range at
+	 * the nodes covering it.
+	 *
+	 * @param linkTable
+	 *            - the table of the links of the social network
+	 * @param intervals
+	 *            - the index of the intervals of activity of the links
+	 * @param timeline
+	 *            - the timeline of the events of the links
+	 * @param userCount
+	 *            - the number of users in the social network
+	 * @param start
+	 *            - the index of the first instant of the range
+	 * @param end
+	 *            - the index after the last instant of the range
+	 */
+	ConnectivitySweep(LinkTable linkTable, IntervalIndex intervals, EventTimeline timeline,
+			int userCount, int start, int end) {
+		int[] positions;
+
+		this.linkTable = linkTable;
+		this.start = start;
+		this.length = Math.max(end - start, 0);
+		this.nodeOffsets = new int[4 * Math.max(length, 1) + 1];
+		this.parents = new int[userCount];
+		this.sizes = new int[userCount];
+
+		for (int user = 0; user < userCount; user++) {
+			parents[user] = user;
+			sizes[user] = 1;
+		}
+
+		// Count the links of each node, then place them at the start of the node.
+		for (int index = 0; index < intervals.size(); index++) {
+			cover(1, 0, length, firstInstant(intervals, timeline, index),
+					endInstant(intervals, timeline, index), -1, null);
+		}
+		for (int node = 1; node < nodeOffsets.length; node++) {
+			nodeOffsets[node] += nodeOffsets[node - 1];
+		}
+
+		this.nodeLinks = new int[nodeOffsets[nodeOffsets.length - 1]];
+		positions = new int[nodeOffsets.length];
+		for (int index = 0; index < intervals.size(); index++) {
+			cover(1, 0, length, firstInstant(intervals, timeline, index),
+					endInstant(intervals, timeline, index), intervals.link(index), positions);
+		}
+	}
+
+	/**
+	 * Finds the size of the connected component of the given user at every
+	 * instant of the range.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return the size of the component of the user at each instant of the
+	 *         range, in order
+	 */
+	int[] componentSizes(int user) {
+		int[] componentSizes = new int[length];
+
+		if (length > 0) {
+			sweep(1, 0, length, user, componentSizes);
+		}
+		return componentSizes;
+	}
+
+	/**
+	 * Gets the position within the range of the first instant an interval is
+	 * active at.
+	 *
+	 * @param intervals
+	 *            - the index of the intervals of activity of the links
+	 * @param timeline
+	 *            - the timeline of the events of the links
+	 * @param index
+	 *            - the position of the interval
+	 * @return the position of the first instant of the interval in the range
+	 */
+	private int firstInstant(IntervalIndex intervals, EventTimeline timeline, int index) {
+		return Math.max(timeline.rangeStart(intervals.start(index)) - start, 0);
+	}
+
+	/**
+	 * Gets the position within the range after the last instant an interval
+	 * is active at.
+	 *
+	 * @param intervals
+	 *            - the index of the intervals of activity of the links
+	 * @param timeline
+	 *            - the timeline of the events of the links
+	 * @param index
+	 *            - the position of the interval
+	 * @return the position after the last instant of the interval in the range
+	 */
+	private int endInstant(IntervalIndex intervals, EventTimeline timeline, int index) {
+		int end = intervals.end(index) == IntervalIndex.OPEN_END ? timeline.size()
+				: timeline.rangeStart(intervals.end(index));
+
+		return Math.min(end - start, length);
+	}
+
+	/**
+	 * Visits the nodes of the segment tree that exactly cover a run of
+	 * instants, counting a link at each of them or placing it there.
+	 *
+	 * @param node
+	 *            - the node of the segment tree
+	 * @param low
+	 *            - the first instant of the node
+	 * @param high
+	 *            - the instant after the last of the node
+	 * @param from
+	 *            - the first instant of the run
+	 * @param to
+	 *            - the instant after the last of the run
+	 * @param link
+	 *            - the index of the link to place
+	 * @param positions
+	 *            - the number of links placed at each node so far, or null to
+	 *            count the links instead
+	 */
+	private void cover(int node, int low, int high, int from, int to, int link, int[] positions) {
+		int middle;
+
+		if (to <= low || high <= from) {
+			return;
+		}
+
+		if (from <= low && high <= to) {
+			if (positions == null) {
+				nodeOffsets[node]++;
+			} else {
+				nodeLinks[nodeOffsets[node - 1] + positions[node]++] = link;
+			}
+			return;
+		}
+
+		middle = (low + high) >>> 1;
+		cover(2 * node, low, middle, from, to, link, positions);
+		cover(2 * node + 1, middle, high, from, to, link, positions);
+	}
+
+	/**
+	 * Merges the links of a node, reads the component size of the user at the
+	 * instant of a leaf or walks the children of the node, then undoes the
+	 * merges of the node.
+	 *
+	 * @param node
+	 *            - the node of the segment tree
+	 * @param low
+	 *            - the first instant of the node
+	 * @param high
+	 *            - the instant after the last of the node
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param componentSizes
+	 *            - the component size of the user at each instant
+	 */
+	private void sweep(int node, int low, int high, int user, int[] componentSizes) {
+		int mark = merges.size();
+		int middle;
+		long key;
+
+		for (int position = nodeOffsets[node - 1]; position < nodeOffsets[node]; position++) {
+			key = linkTable.key(nodeLinks[position]);
+			union(LinkTable.firstOf(key), LinkTable.secondOf(key));
+		}
+
+		if (high - low == 1) {
+			componentSizes[low] = sizes[find(user)];
+		} else {
+			middle = (low + high) >>> 1;
+			sweep(2 * node, low, middle, user, componentSizes);
+			sweep(2 * node + 1, middle, high, user, componentSizes);
+		}
+
+		rollback(mark);
+	}
+
+	/**
+	 * Finds the root of the component of the given user.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return the root of the component
+	 */
+	private int find(int user) {
+		while (parents[user] != user) {
+			user = parents[user];
+		}
+		return user;
+	}
+
+	/**
+	 * Merges the components of the given users, linking the smaller root under
+	 * the larger one.
+	 *
+	 * @param first
+	 *            - the ordinal of one user
+	 * @param second
+	 *            - the ordinal of the other user
+	 */
+	private void union(int first, int second) {
+		int firstRoot = find(first);
+		int secondRoot = find(second);
+		int root;
+
+		if (firstRoot == secondRoot) {
+			return;
+		}
+
+		if (sizes[firstRoot] < sizes[secondRoot]) {
+			root = firstRoot;
+			firstRoot = secondRoot;
+			secondRoot = root;
+		}
+
+		parents[secondRoot] = firstRoot;
+		sizes[firstRoot] += sizes[secondRoot];
+		merges.add(secondRoot);
+	}
+
+	/**
+	 * Undoes the merges made since the given number of merges, latest first.
+	 *
+	 * @param mark
+	 *            - the number of merges to keep
+	 */
+	private void rollback(int mark) {
+		int child;
+
+		for (int index = merges.size() - 1; index >= mark; index--) {
+			child = merges.get(index);
+			sizes[parents[child]] -= sizes[child];
+			parents[child] = child;
+		}
+		merges.truncate(mark);
+	}
+}
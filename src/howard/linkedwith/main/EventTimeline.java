@@ -0,0 +1,296 @@
+/**
+ *
+ */
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Event timeline holds the distinct instants at which links of a social network
+ * changed, in chronological order, along with the indices of the links that
+ * changed at each instant.
+ *
+ * Instants are epoch milliseconds in a sorted array, so the rank of a time,
+ * the instant at a rank and the instants within a range are all found by
+ * binary search.
+ *
+ * A timeline opened from a graph file reads its instants and changed links in
+ * place from the stores of the file, and only copies them onto the heap when
+ * another change is recorded.
+ *
+ * @author Shaun Howard
+ */
+class EventTimeline {
+
+	// Initial capacity of the timeline.
+	private static final int INITIAL_CAPACITY = 16;
+
+	// Distinct instants of events in ascending order.
+	private long[] instants;
+
+	// Indices of the links that changed at each instant.
+	private int[][] changedLinks;
+
+	// Number of links that changed at each instant.
+	private int[] changedCounts;
+
+	// Number of distinct instants in the timeline.
+	private int size;
+
+	// Instants of a timeline opened from a file, null once on the heap.
+	private LongStore storedInstants;
+
+	// Start of the changed links of each stored instant.
+	private IntStore storedOffsets;
+
+	// Changed links of the stored instants.
+	private IntStore storedLinks;
+
+	/**
+	 * Constructor to create an empty timeline.
+	 */
+	EventTimeline() {
+		this.instants = new long[INITIAL_CAPACITY];
+		this.changedLinks = new int[INITIAL_CAPACITY][];
+		this.changedCounts = new int[INITIAL_CAPACITY];
+		this.size = 0;
+		this.storedInstants = null;
+		this.storedOffsets = null;
+		this.storedLinks = null;
+	}
+
+	/**
+	 * Constructor to create a timeline that reads the given stores in place.
+	 *
+	 * @param instants
+	 *            - the distinct instants in ascending order
+	 * @param offsets
+	 *            - the start of the changed links of each instant, followed
+	 *            by the total number of changed links
+	 * @param links
+	 *            - the indices of the changed links of every instant
+	 */
+	EventTimeline(LongStore instants, IntStore offsets, IntStore links) {
+		this.instants = null;
+		this.changedLinks = null;
+		this.changedCounts = null;
+		this.size = instants.length();
+		this.storedInstants = instants;
+		this.storedOffsets = offsets;
+		this.storedLinks = links;
+	}
+
+	/**
+	 * Records that the link of the given index changed at the given time.
+	 *
+	 * @param time
+	 *            - the time of the change in epoch milliseconds
+	 * @param link
+	 *            - the index of the link that changed
+	 */
+	void record(long time, int link) {
+		int index;
+
+		if (storedInstants != null) {
+			moveToHeap();
+		}
+
+		index = rank(time) - 1;
+
+		// Insert the instant when it is not in the timeline yet.
+		if (index < 0 || instants[index] != time) {
+			index++;
+			insertInstant(index, time);
+		}
+
+		addChangedLink(index, link);
+	}
+
+	/**
+	 * Gets the number of distinct instants in the timeline.
+	 *
+	 * @return the number of instants
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the instant at the given index in chronological order.
+	 *
+	 * @param index
+	 *            - the index of the instant, below the size
+	 * @return the instant in epoch milliseconds
+	 */
+	long instantAt(int index) {
+		if (storedInstants != null) {
+			return storedInstants.get(index);
+		}
+		return instants[index];
+	}
+
+	/**
+	 * Gets the number of instants at or before the given time, which is also
+	 * the index of the first instant after the time.
+	 *
+	 * @param time
+	 *            - the time in epoch milliseconds
+	 * @return the number of instants at or before the time
+	 */
+	int rank(long time) {
+		int low = 0;
+		int high = size;
+		int middle;
+
+		while (low < high) {
+			middle = (low + high) >>> 1;
+
+			if (instantAt(middle) <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Gets the index of the first instant at or after the given time, which
+	 * starts the range of instants from that time.
+	 *
+	 * @param time
+	 *            - the time in epoch milliseconds
+	 * @return the index of the first instant not before the time
+	 */
+	int rangeStart(long time) {
+		if (time == Long.MIN_VALUE) {
+			return 0;
+		}
+		return rank(time - 1);
+	}
+
+	/**
+	 * Gets the index after the last instant at or before the given time, which
+	 * ends the range of instants up to that time.
+	 *
+	 * @param time
+	 *            - the time in epoch milliseconds
+	 * @return the index after the last instant not after the time
+	 */
+	int rangeEnd(long time) {
+		return rank(time);
+	}
+
+	/**
+	 * Gets the number of links that changed at the instant of the given index.
+	 *
+	 * @param index
+	 *            - the index of the instant
+	 * @return the number of links that changed at the instant
+	 */
+	int changedLinkCount(int index) {
+		if (storedInstants != null) {
+			return storedOffsets.get(index + 1) - storedOffsets.get(index);
+		}
+		return changedCounts[index];
+	}
+
+	/**
+	 * Gets the index of a link that changed at the instant of the given index.
+	 *
+	 * @param index
+	 *            - the index of the instant
+	 * @param position
+	 *            - the position of the link, below the changed link count
+	 * @return the index of the link that changed
+	 */
+	int changedLink(int index, int position) {
+		if (storedInstants != null) {
+			return storedLinks.get(storedOffsets.get(index) + position);
+		}
+		return changedLinks[index][position];
+	}
+
+	/**
+	 * Copies the stored instants and changed links onto the heap so the
+	 * timeline can record further changes.
+	 */
+	private void moveToHeap() {
+		int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+		int[] links;
+
+		instants = new long[capacity];
+		changedLinks = new int[capacity][];
+		changedCounts = new int[capacity];
+
+		for (int index = 0; index < size; index++) {
+			links = new int[Math.max(2, changedLinkCount(index))];
+			for (int position = 0; position < changedLinkCount(index); position++) {
+				links[position] = changedLink(index, position);
+			}
+
+			instants[index] = instantAt(index);
+			changedLinks[index] = links;
+			changedCounts[index] = changedLinkCount(index);
+		}
+
+		storedInstants = null;
+		storedOffsets = null;
+		storedLinks = null;
+	}
+
+	/**
+	 * Inserts a new instant at the given index, shifting later instants.
+	 *
+	 * @param index
+	 *            - the index to insert the instant at
+	 * @param time
+	 *            - the instant in epoch milliseconds
+	 */
+	private void insertInstant(int index, long time) {
+		if (size == instants.length) {
+			instants = Arrays.copyOf(instants, size * 2);
+			changedLinks = Arrays.copyOf(changedLinks, size * 2);
+			changedCounts = Arrays.copyOf(changedCounts, size * 2);
+		}
+
+		// Shift the later instants, which is free when appending in order.
+		System.arraycopy(instants, index, instants, index + 1, size - index);
+		System.arraycopy(changedLinks, index, changedLinks, index + 1, size - index);
+		System.arraycopy(changedCounts, index, changedCounts, index + 1, size - index);
+
+		instants[index] = time;
+		changedLinks[index] = null;
+		changedCounts[index] = 0;
+		size++;
+	}
+
+	/**
+	 * Adds the link to the links that changed at the instant of the given
+	 * index, unless it is already the last one recorded there.
+	 *
+	 * @param index
+	 *            - the index of the instant
+	 * @param link
+	 *            - the index of the link that changed
+	 */
+	private void addChangedLink(int index, int link) {
+		int[] links = changedLinks[index];
+		int count = changedCounts[index];
+
+		if (count > 0 && links[count - 1] == link) {
+			return;
+		}
+
+		if (links == null) {
+			links = new int[2];
+		} else if (count == links.length) {
+			links = Arrays.copyOf(links, count * 2);
+		}
+
+		links[count] = link;
+		changedLinks[index] = links;
+		changedCounts[index] = count + 1;
+	}
+}
@@ -92,8 +92,9 @@ public class Friend {
 
     /**
      * Override the equals method of Object for this Friend implementation.
-     * Compares two friends by their user objects. Returns true if two user objects
-     * are equivalent.
+     * Compares two friends by their user objects and distances. Returns true if
+     * two user objects are equivalent at the same distance, consistent with
+     * the hash code.
      *
      * @param object - the object to compare to this object
      */
@@ -108,7 +109,8 @@ public class Friend {
             Friend friend = (Friend) object;
 
             try {
-                if (this.user.getID().equals(friend.getUser().getID())) {
+                if (this.user.getID().equals(friend.getUser().getID())
+                        && this.distance == friend.getDistance()) {
                     result = true;
                 }
             } catch (UninitializedObjectException e) {
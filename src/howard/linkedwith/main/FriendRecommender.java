@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Friend recommender ranks the users two links away from a user by the number
+ * of friends they share with the user, examining a bounded number of links so
+ * that a user linked to hubs costs no more than a budget.
+ *
+ * When the links of all the friends of the user fit in the budget, every one
+ * of them is examined. Otherwise the friends are walked from the fewest links
+ * up, and each one may examine an even share of what is left of the budget, so
+ * friends with few links are examined whole and the rest of the budget is
+ * split between the hubs, which examine evenly spaced links of their rows.
+ * Links are followed over the live graph at the date, so a link inactive at
+ * the date is skipped but still counts against the budget. Every user reached
+ * is tallied in a traversal scratch, where the user and its friends are
+ * visited first with a tally too low to ever count, so the work is in
+ * proportion to the links examined, and the users sharing the most friends
+ * are kept in a bounded heap.
+ *
+ * @author Shaun Howard
+ */
+final class FriendRecommender {
+
+	// Most links examined from the friends of a user for one recommendation.
+	static final int EDGE_BUDGET = 1 << 16;
+
+	// Tally marking the user and its friends, which the budget never lifts to zero.
+	private static final int EXCLUDED = Integer.MIN_VALUE;
+
+	/**
+	 * Prevents creating friend recommenders, which only has static methods.
+	 */
+	private FriendRecommender() {
+	}
+
+	/**
+	 * Recommends the users two links away from a user that share the most
+	 * friends with it over the given graph.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the recommendation
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param count
+	 *            - the most users to recommend
+	 * @return the ordinals of the recommended users from the most friends shared
+	 *         down, with users added earlier ranked first among equal counts
+	 */
+	static int[] recommend(ActiveGraph graph, int user, int count) {
+		TraversalScratch scratch;
+		BoundedHeap leaders;
+		long[] ranked;
+		int[] recommended;
+		int candidate;
+
+		if (count <= 0) {
+			return new int[0];
+		}
+
+		scratch = TraversalScratch.acquire(graph.userCount());
+		// No more users can be recommended than there are in the graph.
+		leaders = new BoundedHeap(Math.min(count, graph.userCount()));
+		try {
+			tallyFriendsOfFriends(graph, user, scratch);
+
+			for (int index = 0; index < scratch.reached(); index++) {
+				candidate = scratch.reachedUser(index);
+
+				if (scratch.distance(candidate) > 0) {
+					leaders.offer(((long) scratch.distance(candidate) << 32)
+							| (~candidate & 0xFFFFFFFFL));
+				}
+			}
+		} finally {
+			scratch.release();
+		}
+
+		ranked = leaders.toDescendingArray();
+		recommended = new int[ranked.length];
+		for (int index = 0; index < ranked.length; index++) {
+			recommended[index] = ~(int) ranked[index];
+		}
+		return recommended;
+	}
+
+	/**
+	 * Tallies the users linked to each friend of a user within the budget of
+	 * links, once for every friend they are linked to, after marking the user
+	 * and its friends as excluded.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the recommendation
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param scratch
+	 *            - the scratch to tally the users in
+	 */
+	private static void tallyFriendsOfFriends(ActiveGraph graph, int user,
+			TraversalScratch scratch) {
+		long[] friends = new long[graph.degree(user)];
+		int friendCount = 0;
+		long links = 0;
+		int remaining = EDGE_BUDGET;
+		int friend, degree, share, position;
+
+		scratch.visit(user, EXCLUDED);
+		for (position = 0; position < friends.length; position++) {
+			if (!graph.isActive(user, position)) {
+				continue;
+			}
+
+			friend = graph.neighbor(user, position);
+			scratch.visit(friend, EXCLUDED);
+			friends[friendCount++] = ((long) graph.degree(friend) << 32) | friend;
+			links += graph.degree(friend);
+		}
+
+		// Only order the friends by their number of links when some are cut.
+		if (links > EDGE_BUDGET) {
+			Arrays.sort(friends, 0, friendCount);
+		}
+
+		for (int index = 0; index < friendCount && remaining > 0; index++) {
+			friend = (int) friends[index];
+			degree = graph.degree(friend);
+			share = links > EDGE_BUDGET ? Math.min(degree, remaining / (friendCount - index))
+					: degree;
+
+			// Examine evenly spaced links of a friend with more than its share.
+			for (int step = 0; step < share; step++) {
+				position = (int) ((long) step * degree / share);
+
+				if (graph.isActive(friend, position)) {
+					scratch.tally(graph.neighbor(friend, position));
+				}
+			}
+			remaining -= share;
+		}
+	}
+}
@@ -0,0 +1,518 @@
+/**
+ *
+ */
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import exceptions.UninitializedObjectException;
+
+/**
+ * Graph file writes a social network to a versioned binary file and opens it
+ * again by memory mapping, so the adjacency, the link table and the timelines
+ * are queried in place instead of being replayed.
+ *
+ * The file starts with a fixed header followed by sections, each aligned to
+ * eight bytes, in this order: the user dictionary, the compacted adjacency
+ * rows, the slots and pair keys of the link table, the sealed timelines of the
+ * links and the global event timeline. All numbers are little endian. The user
+ * dictionary holds the fields of every user by ordinal as length prefixed
+ * UTF-8 strings, with a negative length for a missing field.
+ *
+ * Sections are mapped read only. An opened social network copies a section
+ * before changing it or reads it into a new structure, so changes never reach
+ * the file until it is written again.
+ *
+ * @author Shaun Howard
+ */
+final class GraphFile {
+
+	// Magic number that starts every graph file.
+	private static final int MAGIC = 0x4C574746;
+
+	// Version of the format written by this class.
+	static final int VERSION = 1;
+
+	// Number of bytes of the header.
+	private static final int HEADER_BYTES = 64;
+
+	// Number of string fields of each user in the dictionary.
+	private static final int USER_FIELDS = 6;
+
+	// Byte order of every number in the file.
+	private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/**
+	 * Prevents creating graph files, which only has static methods.
+	 */
+	private GraphFile() {
+	}
+
+	/**
+	 * Writes the given social network to the given file, replacing its
+	 * contents. The social network is compacted first. The file is replaced
+	 * atomically, so a social network opened from the same file keeps reading
+	 * the contents it was opened with.
+	 *
+	 * @param network
+	 *            - the social network to write
+	 * @param file
+	 *            - the file to write to
+	 *
+	 * @throws IOException
+	 *             - thrown when the file cannot be written
+	 */
+	static void write(SocialNetwork network, File file) throws IOException {
+		LinkTable links = network.userLinks;
+		UserGraph graph = network.userGraph;
+		EventTimeline timeline = network.eventTimeline;
+		int userCount = network.usersByOrdinal.size();
+		int edgeCount = 2 * links.size();
+		int eventCount = 0;
+		int changedCount = 0;
+		byte[][] dictionary = new byte[userCount * USER_FIELDS][];
+		long dictionaryBytes = 0;
+		File target = file.getAbsoluteFile();
+		File temporary;
+		int offset;
+
+		network.compact();
+
+		for (int link = 0; link < links.size(); link++) {
+			eventCount += links.eventCount(link);
+		}
+		for (int index = 0; index < timeline.size(); index++) {
+			changedCount += timeline.changedLinkCount(index);
+		}
+		for (int user = 0; user < userCount; user++) {
+			dictionaryBytes += encodeUser(network.usersByOrdinal.get(user), dictionary,
+					user * USER_FIELDS);
+		}
+
+		/*
+		 * Write a temporary file beside the target and move it over the target
+		 * once it is on the disk, since the target may still be mapped by the
+		 * social network being written.
+		 */
+		temporary = File.createTempFile("." + target.getName() + "-", ".tmp",
+				target.getParentFile());
+		try {
+			try (RandomAccessFile output = new RandomAccessFile(temporary, "rw");
+					SectionWriter writer = new SectionWriter(output.getChannel())) {
+				// Header.
+				writer.putInt(MAGIC);
+				writer.putInt(VERSION);
+				writer.putInt(userCount);
+				writer.putInt(links.size());
+				writer.putInt(links.slotCapacity());
+				writer.putInt(eventCount);
+				writer.putInt(timeline.size());
+				writer.putInt(changedCount);
+				writer.putLong(dictionaryBytes);
+				writer.padTo(HEADER_BYTES);
+
+				// User dictionary.
+				for (byte[] field : dictionary) {
+					writer.putInt(field == null ? -1 : field.length);
+					if (field != null) {
+						writer.putBytes(field);
+					}
+				}
+
+				// Compacted adjacency rows.
+				writer.align();
+				offset = 0;
+				for (int user = 0; user < userCount; user++) {
+					writer.putInt(offset);
+					offset += graph.degree(user);
+				}
+				writer.putInt(edgeCount);
+
+				writer.align();
+				for (int user = 0; user < userCount; user++) {
+					for (int position = 0; position < graph.degree(user); position++) {
+						writer.putInt(graph.neighbor(user, position));
+					}
+				}
+
+				writer.align();
+				for (int user = 0; user < userCount; user++) {
+					for (int position = 0; position < graph.degree(user); position++) {
+						writer.putInt(graph.link(user, position));
+					}
+				}
+
+				// Link table.
+				writer.align();
+				for (int slot = 0; slot < links.slotCapacity(); slot++) {
+					writer.putLong(links.slotKey(slot));
+				}
+
+				writer.align();
+				for (int slot = 0; slot < links.slotCapacity(); slot++) {
+					writer.putInt(links.slotLink(slot));
+				}
+
+				writer.align();
+				for (int link = 0; link < links.size(); link++) {
+					writer.putLong(links.key(link));
+				}
+
+				// Link timelines.
+				writer.align();
+				offset = 0;
+				for (int link = 0; link < links.size(); link++) {
+					writer.putInt(offset);
+					offset += links.eventCount(link);
+				}
+				writer.putInt(eventCount);
+
+				writer.align();
+				for (int link = 0; link < links.size(); link++) {
+					for (int event = 0; event < links.eventCount(link); event++) {
+						writer.putLong(links.eventAt(link, event));
+					}
+				}
+
+				// Global event timeline.
+				writer.align();
+				for (int index = 0; index < timeline.size(); index++) {
+					writer.putLong(timeline.instantAt(index));
+				}
+
+				writer.align();
+				offset = 0;
+				for (int index = 0; index < timeline.size(); index++) {
+					writer.putInt(offset);
+					offset += timeline.changedLinkCount(index);
+				}
+				writer.putInt(changedCount);
+
+				writer.align();
+				for (int index = 0; index < timeline.size(); index++) {
+					for (int position = 0; position < timeline.changedLinkCount(index); position++) {
+						writer.putInt(timeline.changedLink(index, position));
+					}
+				}
+			}
+
+			Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary.toPath());
+		}
+	}
+
+	/**
+	 * Opens the social network written to the given file by mapping its
+	 * sections. Only the users are read onto the heap.
+	 *
+	 * @param file
+	 *            - the file to open
+	 * @return the social network in the file
+	 *
+	 * @throws IOException
+	 *             - thrown when the file cannot be read or is not a graph file
+	 *             of a supported version
+	 */
+	static SocialNetwork open(File file) throws IOException {
+		try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+			FileChannel channel = input.getChannel();
+			ByteBuffer header = map(channel, 0, HEADER_BYTES);
+			int userCount, linkCount, slotCapacity, eventCount, instantCount, changedCount;
+			long dictionaryBytes, position;
+			List<User> users;
+			IntStore offsets, neighbors, edgeLinks, slotLinks, timelineOffsets;
+			IntStore changedOffsets, changedLinks;
+			LongStore slotKeys, linkKeys, timelines, instants;
+
+			if (channel.size() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+				throw new IOException("Not a graph file: " + file);
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IOException("Unsupported graph file version " + header.getInt(4)
+						+ ": " + file);
+			}
+
+			userCount = header.getInt(8);
+			linkCount = header.getInt(12);
+			slotCapacity = header.getInt(16);
+			eventCount = header.getInt(20);
+			instantCount = header.getInt(24);
+			changedCount = header.getInt(28);
+			dictionaryBytes = header.getLong(32);
+
+			position = HEADER_BYTES;
+			users = decodeUsers(map(channel, position, dictionaryBytes), userCount);
+			position = align(position + dictionaryBytes);
+
+			offsets = IntStore.wrap(map(channel, position, 4L * (userCount + 1)));
+			position = align(position + 4L * (userCount + 1));
+			neighbors = IntStore.wrap(map(channel, position, 8L * linkCount));
+			position = align(position + 8L * linkCount);
+			edgeLinks = IntStore.wrap(map(channel, position, 8L * linkCount));
+			position = align(position + 8L * linkCount);
+
+			slotKeys = LongStore.wrap(map(channel, position, 8L * slotCapacity));
+			position = align(position + 8L * slotCapacity);
+			slotLinks = IntStore.wrap(map(channel, position, 4L * slotCapacity));
+			position = align(position + 4L * slotCapacity);
+			linkKeys = LongStore.wrap(map(channel, position, 8L * linkCount));
+			position = align(position + 8L * linkCount);
+
+			timelineOffsets = IntStore.wrap(map(channel, position, 4L * (linkCount + 1)));
+			position = align(position + 4L * (linkCount + 1));
+			timelines = LongStore.wrap(map(channel, position, 8L * eventCount));
+			position = align(position + 8L * eventCount);
+
+			instants = LongStore.wrap(map(channel, position, 8L * instantCount));
+			position = align(position + 8L * instantCount);
+			changedOffsets = IntStore.wrap(map(channel, position, 4L * (instantCount + 1)));
+			position = align(position + 4L * (instantCount + 1));
+			changedLinks = IntStore.wrap(map(channel, position, 4L * changedCount));
+
+			return new SocialNetwork(users,
+					new LinkTable(slotKeys, slotLinks, linkKeys, timelines, timelineOffsets, users),
+					new UserGraph(offsets, neighbors, edgeLinks),
+					new EventTimeline(instants, changedOffsets, changedLinks));
+		}
+	}
+
+	/**
+	 * Encodes the fields of the given user as UTF-8 into the dictionary.
+	 *
+	 * @param user
+	 *            - the user to encode
+	 * @param dictionary
+	 *            - the encoded fields of every user
+	 * @param start
+	 *            - the index of the first field of the user in the dictionary
+	 * @return the number of bytes the user takes in the file
+	 */
+	private static long encodeUser(User user, byte[][] dictionary, int start) {
+		String[] fields = { user.getID(), user.getFirstName(), user.getMiddleName(),
+				user.getLastName(), user.getEmail(), user.getPhoneNumber() };
+		long bytes = 0;
+
+		for (int field = 0; field < USER_FIELDS; field++) {
+			if (fields[field] != null) {
+				dictionary[start + field] = fields[field].getBytes(StandardCharsets.UTF_8);
+				bytes += dictionary[start + field].length;
+			}
+			bytes += 4;
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Decodes the users of the given dictionary section in order of their
+	 * ordinals.
+	 *
+	 * @param section
+	 *            - the dictionary section
+	 * @param userCount
+	 *            - the number of users in the dictionary
+	 * @return the users by ordinal
+	 *
+	 * @throws IOException
+	 *             - thrown when the dictionary is malformed
+	 */
+	private static List<User> decodeUsers(ByteBuffer section, int userCount) throws IOException {
+		List<User> users = new ArrayList<>(userCount);
+		String[] fields = new String[USER_FIELDS];
+		User user;
+
+		for (int index = 0; index < userCount; index++) {
+			for (int field = 0; field < USER_FIELDS; field++) {
+				fields[field] = decodeString(section);
+			}
+			if (fields[0] == null) {
+				throw new IOException("User without an id in graph file.");
+			}
+
+			user = new User();
+			user.setID(fields[0]);
+			try {
+				decodeProfile(user, fields);
+			} catch (UninitializedObjectException e) {
+				throw new IOException(e);
+			}
+			users.add(user);
+		}
+
+		return users;
+	}
+
+	/**
+	 * Sets the decoded profile fields of the given user that are present.
+	 *
+	 * @param user
+	 *            - the user with its id set
+	 * @param fields
+	 *            - the decoded fields of the user, starting with its id
+	 *
+	 * @throws UninitializedObjectException
+	 *             - thrown when the user is invalid
+	 */
+	private static void decodeProfile(User user, String[] fields)
+			throws UninitializedObjectException {
+		if (fields[1] != null) {
+			user.setFirstName(fields[1]);
+		}
+		if (fields[2] != null) {
+			user.setMiddleName(fields[2]);
+		}
+		if (fields[3] != null) {
+			user.setLastName(fields[3]);
+		}
+		if (fields[4] != null) {
+			user.setEmail(fields[4]);
+		}
+		if (fields[5] != null) {
+			user.setPhoneNumber(fields[5]);
+		}
+	}
+
+	/**
+	 * Decodes the next length prefixed UTF-8 string of the given buffer.
+	 *
+	 * @param section
+	 *            - the buffer positioned at the string
+	 * @return the string or null when it is missing
+	 */
+	private static String decodeString(ByteBuffer section) {
+		int length = section.getInt();
+		byte[] bytes;
+
+		if (length < 0) {
+			return null;
+		}
+
+		bytes = new byte[length];
+		section.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Maps the given region of the file read only in the byte order of the
+	 * format.
+	 *
+	 * @param channel
+	 *            - the channel of the file
+	 * @param position
+	 *            - the position of the region
+	 * @param length
+	 *            - the number of bytes of the region
+	 * @return the mapped region
+	 *
+	 * @throws IOException
+	 *             - thrown when the region cannot be mapped
+	 */
+	private static ByteBuffer map(FileChannel channel, long position, long length)
+			throws IOException {
+		if (position + length > channel.size()) {
+			throw new IOException("Truncated graph file.");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ORDER);
+	}
+
+	/**
+	 * Rounds the given position up to the next multiple of eight bytes.
+	 *
+	 * @param position
+	 *            - the position in the file
+	 * @return the aligned position
+	 */
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	/**
+	 * Section writer buffers numbers in the byte order of the format and
+	 * writes them to a file channel, tracking its position for alignment.
+	 */
+	private static final class SectionWriter implements AutoCloseable {
+
+		// The channel to write to.
+		private final FileChannel channel;
+
+		// The buffer of bytes not yet written.
+		private final ByteBuffer buffer;
+
+		// The number of bytes written so far, including the buffer.
+		private long position;
+
+		SectionWriter(FileChannel channel) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocateDirect(1 << 16).order(ORDER);
+			this.position = 0;
+		}
+
+		void putInt(int value) throws IOException {
+			ensureRoom(4);
+			buffer.putInt(value);
+			position += 4;
+		}
+
+		void putLong(long value) throws IOException {
+			ensureRoom(8);
+			buffer.putLong(value);
+			position += 8;
+		}
+
+		void putBytes(byte[] bytes) throws IOException {
+			int written = 0;
+			int length;
+
+			while (written < bytes.length) {
+				ensureRoom(1);
+				length = Math.min(buffer.remaining(), bytes.length - written);
+				buffer.put(bytes, written, length);
+				written += length;
+			}
+			position += bytes.length;
+		}
+
+		void align() throws IOException {
+			padTo(GraphFile.align(position));
+		}
+
+		void padTo(long target) throws IOException {
+			while (position < target) {
+				ensureRoom(1);
+				buffer.put((byte) 0);
+				position++;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+			channel.force(true);
+		}
+
+		private void ensureRoom(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package main;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Graph snapshot is an immutable picture of the links of a social network that
+ * are active at a given date.
+ *
+ * The active links are materialized once in compressed sparse row form over
+ * the user ordinals, with every row sorted by neighbor ordinal, so queries on
+ * the snapshot never check the activity of a link again.
+ *
+ * @author Shaun Howard
+ */
+public final class GraphSnapshot extends ActiveGraph {
+
+	// Fixed overhead of a snapshot in bytes, used to estimate its size.
+	private static final long OVERHEAD_BYTES = 64;
+
+	// The date the snapshot was built for in epoch milliseconds.
+	private final long time;
+
+	// Start of the row of each user in the neighbor array.
+	private final int[] offsets;
+
+	// Neighbor ordinals of the rows.
+	private final int[] neighbors;
+
+	// Number of users in the snapshot.
+	private final int userCount;
+
+	/**
+	 * Constructor to materialize the snapshot of the given graph of users at
+	 * the given time from the indices of the links active at that time.
+	 *
+	 * @param userLinks
+	 *            - the links of the social network
+	 * @param userCount
+	 *            - the number of users in the social network
+	 * @param activeLinks
+	 *            - the indices of the links active at the time
+	 * @param time
+	 *            - the time of the snapshot in epoch milliseconds
+	 */
+	GraphSnapshot(LinkTable userLinks, int userCount, IntList activeLinks, long time) {
+		int[] positions;
+		long key;
+		int first, second;
+
+		this.time = time;
+		this.userCount = userCount;
+		this.offsets = new int[userCount + 1];
+		this.neighbors = new int[2 * activeLinks.size()];
+
+		// Count the active degree of every user.
+		for (int index = 0; index < activeLinks.size(); index++) {
+			key = userLinks.key(activeLinks.get(index));
+			offsets[LinkTable.firstOf(key) + 1]++;
+			offsets[LinkTable.secondOf(key) + 1]++;
+		}
+
+		for (int user = 0; user < userCount; user++) {
+			offsets[user + 1] += offsets[user];
+		}
+
+		// Place both ends of each active link in the rows of its users.
+		positions = Arrays.copyOf(offsets, userCount);
+		for (int index = 0; index < activeLinks.size(); index++) {
+			key = userLinks.key(activeLinks.get(index));
+			first = LinkTable.firstOf(key);
+			second = LinkTable.secondOf(key);
+			neighbors[positions[first]++] = second;
+			neighbors[positions[second]++] = first;
+		}
+
+		for (int user = 0; user < userCount; user++) {
+			Arrays.sort(neighbors, offsets[user], offsets[user + 1]);
+		}
+	}
+
+	/**
+	 * Gets the date the snapshot was built for. A cached snapshot is shared by
+	 * every date between the same two events of the social network, so this is
+	 * the date of the query that built it, which may differ from the date of a
+	 * later query that reused it while showing the same links.
+	 *
+	 * @return the date the snapshot was built for
+	 */
+	public Date getDate() {
+		return new Date(time);
+	}
+
+	/**
+	 * Gets the number of links active in the snapshot.
+	 *
+	 * @return the number of active links
+	 */
+	public int linkCount() {
+		return neighbors.length / 2;
+	}
+
+	/**
+	 * Gets the estimated number of bytes the snapshot occupies.
+	 *
+	 * @return the estimated size of the snapshot in bytes
+	 */
+	public long estimatedBytes() {
+		return OVERHEAD_BYTES + 4L * (offsets.length + neighbors.length);
+	}
+
+	@Override
+	int userCount() {
+		return this.userCount;
+	}
+
+	@Override
+	long edgeCount() {
+		return neighbors.length;
+	}
+
+	@Override
+	int degree(int user) {
+		if (user >= userCount) {
+			return 0;
+		}
+		return offsets[user + 1] - offsets[user];
+	}
+
+	@Override
+	int neighbor(int user, int position) {
+		return neighbors[offsets[user] + position];
+	}
+
+	@Override
+	boolean isActive(int user, int position) {
+		return true;
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ *
+ */
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Int list is a growable list of primitive ints, used for the user ordinals and
+ * link indices produced by traversals and index queries without boxing.
+ *
+ * @author Shaun Howard
+ */
+class IntList {
+
+	// The values of the list.
+	private int[] values;
+
+	// The number of values in the list.
+	private int size;
+
+	/**
+	 * Constructor to create an empty list.
+	 */
+	IntList() {
+		this(16);
+	}
+
+	/**
+	 * Constructor to create an empty list with the given capacity.
+	 *
+	 * @param capacity
+	 *            - the initial capacity of the list
+	 */
+	IntList(int capacity) {
+		this.values = new int[Math.max(capacity, 1)];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds the value to the end of the list.
+	 *
+	 * @param value
+	 *            - the value to add
+	 */
+	void add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	/**
+	 * Gets the value at the given index.
+	 *
+	 * @param index
+	 *            - the index of the value, below the size
+	 * @return the value at the index
+	 */
+	int get(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Gets the number of values in the list.
+	 *
+	 * @return the number of values
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns whether the list has no values.
+	 *
+	 * @return whether the list is empty
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes every value from the list, keeping its capacity.
+	 */
+	void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * Removes the values after the given number of values.
+	 *
+	 * @param size
+	 *            - the number of values to keep, at most the size
+	 */
+	void truncate(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Sorts the values of the list in ascending order.
+	 */
+	void sort() {
+		Arrays.sort(values, 0, size);
+	}
+
+	/**
+	 * Copies the values of the list into a new array.
+	 *
+	 * @return an array of the values of the list
+	 */
+	int[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+}
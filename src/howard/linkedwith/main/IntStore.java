@@ -0,0 +1,204 @@
+/**
+ *
+ */
+package main;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Int store is a fixed length array of ints kept either on the heap or in a
+ * direct buffer outside of the heap, depending on the storage mode it was
+ * allocated with.
+ *
+ * @author Shaun Howard
+ */
+abstract class IntStore {
+
+	/**
+	 * Allocates a store of the given length filled with zeros.
+	 *
+	 * @param mode
+	 *            - the storage mode of the store
+	 * @param length
+	 *            - the number of ints in the store
+	 * @return the allocated store
+	 */
+	static IntStore allocate(StorageMode mode, int length) {
+		if (mode == StorageMode.OFF_HEAP) {
+			return new DirectIntStore(length);
+		}
+		return new HeapIntStore(length);
+	}
+
+	/**
+	 * Wraps the given buffer, such as a mapped section of a file, as a store
+	 * of the ints it holds in its byte order.
+	 *
+	 * @param buffer
+	 *            - the buffer to read and write the ints in
+	 * @return the store over the buffer
+	 */
+	static IntStore wrap(ByteBuffer buffer) {
+		return new DirectIntStore(buffer.asIntBuffer());
+	}
+
+	/**
+	 * Gets the number of ints in the store.
+	 *
+	 * @return the length of the store
+	 */
+	abstract int length();
+
+	/**
+	 * Gets the int at the given index.
+	 *
+	 * @param index
+	 *            - the index, below the length
+	 * @return the int at the index
+	 */
+	abstract int get(int index);
+
+	/**
+	 * Sets the int at the given index.
+	 *
+	 * @param index
+	 *            - the index, below the length
+	 * @param value
+	 *            - the int to set
+	 */
+	abstract void set(int index, int value);
+
+	/**
+	 * Sets every int of the store to the given value.
+	 *
+	 * @param value
+	 *            - the int to fill the store with
+	 */
+	abstract void fill(int value);
+
+	/**
+	 * Copies the store into a new store of the same mode with the given
+	 * length, padding with zeros.
+	 *
+	 * @param length
+	 *            - the length of the copy
+	 * @return the copy of the store
+	 */
+	abstract IntStore copyOf(int length);
+
+	/**
+	 * Int store backed by an int array on the heap.
+	 */
+	private static final class HeapIntStore extends IntStore {
+
+		// The ints of the store.
+		private final int[] values;
+
+		HeapIntStore(int length) {
+			this.values = new int[length];
+		}
+
+		private HeapIntStore(int[] values) {
+			this.values = values;
+		}
+
+		@Override
+		int length() {
+			return values.length;
+		}
+
+		@Override
+		int get(int index) {
+			return values[index];
+		}
+
+		@Override
+		void set(int index, int value) {
+			values[index] = value;
+		}
+
+		@Override
+		void fill(int value) {
+			Arrays.fill(values, value);
+		}
+
+		@Override
+		IntStore copyOf(int length) {
+			return new HeapIntStore(Arrays.copyOf(values, length));
+		}
+	}
+
+	/**
+	 * Int store backed by a direct buffer outside of the heap.
+	 */
+	private static final class DirectIntStore extends IntStore {
+
+		// The ints of the store in native byte order.
+		private final IntBuffer values;
+
+		DirectIntStore(int length) {
+			this.values = ByteBuffer.allocateDirect(byteLength(length))
+					.order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+
+		DirectIntStore(IntBuffer values) {
+			this.values = values;
+		}
+
+		@Override
+		int length() {
+			return values.capacity();
+		}
+
+		@Override
+		int get(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		void set(int index, int value) {
+			values.put(index, value);
+		}
+
+		@Override
+		void fill(int value) {
+			for (int index = 0; index < values.capacity(); index++) {
+				values.put(index, value);
+			}
+		}
+
+		@Override
+		IntStore copyOf(int length) {
+			DirectIntStore copy = new DirectIntStore(length);
+			IntBuffer source = values.duplicate();
+
+			source.limit(Math.min(length, values.capacity()));
+			copy.values.put(source);
+			copy.values.clear();
+			return copy;
+		}
+
+		/**
+		 * Gets the number of bytes of a buffer holding the given number of
+		 * ints.
+		 *
+		 * @param length
+		 *            - the number of ints
+		 * @return the number of bytes of the buffer
+		 *
+		 * @throws IllegalArgumentException
+		 *             - thrown when the ints do not fit in one buffer
+		 */
+		private static int byteLength(int length) throws IllegalArgumentException {
+			long bytes = (long) length * Integer.BYTES;
+
+			if (bytes > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Too many ints for a direct buffer: " + length);
+			}
+			return (int) bytes;
+		}
+	}
+}
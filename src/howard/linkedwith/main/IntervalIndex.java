@@ -0,0 +1,248 @@
+/**
+ *
+ */
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Interval index holds the intervals of activity of every link in a social
+ * network and finds the links active at a time or during a range of time.
+ *
+ * Each establishment of a link starts an interval that ends at the following
+ * tear down, or never when the link is still active. The intervals are sorted
+ * by start and read as an implicit balanced search tree, where the middle of
+ * every range is the root of that range and stores the latest end within it.
+ * A query prunes every subtree that ends before the range or starts after it,
+ * so it runs in O(log n + k) for k reported intervals.
+ *
+ * @author Shaun Howard
+ */
+class IntervalIndex {
+
+	// End of the interval of a link that is still active.
+	static final long OPEN_END = Long.MAX_VALUE;
+
+	// Start times of the intervals in ascending order.
+	private final long[] starts;
+
+	// End times of the intervals, exclusive.
+	private final long[] ends;
+
+	// Link indices of the intervals.
+	private final int[] links;
+
+	// Latest end time within the subtree rooted at each interval.
+	private final long[] maxEnds;
+
+	// Number of intervals in the index.
+	private final int size;
+
+	/**
+	 * Constructor to build the index of the intervals of every link in the
+	 * given link table.
+	 *
+	 * @param linkTable
+	 *            - the table of links to index
+	 * @param timeline
+	 *            - the timeline of the events of the links
+	 */
+	IntervalIndex(LinkTable linkTable, EventTimeline timeline) {
+		long[] packed;
+		long[] intervalStarts;
+		long[] intervalEnds;
+		int[] intervalLinks;
+		int count = 0;
+		int eventCount;
+
+		for (int index = 0; index < linkTable.size(); index++) {
+			count += (linkTable.eventCount(index) + 1) / 2;
+		}
+
+		intervalStarts = new long[count];
+		intervalEnds = new long[count];
+		intervalLinks = new int[count];
+		count = 0;
+
+		// Pair every establishment with the tear down after it.
+		for (int index = 0; index < linkTable.size(); index++) {
+			eventCount = linkTable.eventCount(index);
+
+			for (int event = 0; event < eventCount; event += 2) {
+				intervalStarts[count] = linkTable.eventAt(index, event);
+				intervalEnds[count] = event + 1 < eventCount
+						? linkTable.eventAt(index, event + 1) : OPEN_END;
+				intervalLinks[count] = index;
+
+				// An interval torn down when established is never active.
+				if (intervalStarts[count] < intervalEnds[count]) {
+					count++;
+				}
+			}
+		}
+
+		/*
+		 * Sort the intervals by start, packing the rank of each start on the
+		 * timeline above the position of the interval.
+		 */
+		packed = new long[count];
+		for (int index = 0; index < count; index++) {
+			packed[index] = ((long) timeline.rank(intervalStarts[index]) << 32) | index;
+		}
+		Arrays.sort(packed);
+
+		this.size = count;
+		this.starts = new long[count];
+		this.ends = new long[count];
+		this.links = new int[count];
+		this.maxEnds = new long[count];
+
+		for (int index = 0; index < count; index++) {
+			starts[index] = intervalStarts[(int) packed[index]];
+			ends[index] = intervalEnds[(int) packed[index]];
+			links[index] = intervalLinks[(int) packed[index]];
+		}
+
+		computeMaxEnds(0, count);
+	}
+
+	/**
+	 * Gets the number of intervals in the index.
+	 *
+	 * @return the number of intervals
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the start time of the interval at the given position.
+	 *
+	 * @param index
+	 *            - the position of the interval, below the size
+	 * @return the start time of the interval in epoch milliseconds
+	 */
+	long start(int index) {
+		return starts[index];
+	}
+
+	/**
+	 * Gets the end time of the interval at the given position.
+	 *
+	 * @param index
+	 *            - the position of the interval, below the size
+	 * @return the exclusive end time of the interval in epoch milliseconds, or
+	 *         OPEN_END when the link is still active
+	 */
+	long end(int index) {
+		return ends[index];
+	}
+
+	/**
+	 * Gets the index of the link of the interval at the given position.
+	 *
+	 * @param index
+	 *            - the position of the interval, below the size
+	 * @return the index of the link of the interval
+	 */
+	int link(int index) {
+		return links[index];
+	}
+
+	/**
+	 * Adds the indices of the links active at the given time to the list.
+	 *
+	 * @param time
+	 *            - the time in epoch milliseconds
+	 * @param activeLinks
+	 *            - the list to add the link indices to
+	 */
+	void linksActiveAt(long time, IntList activeLinks) {
+		linksActiveDuring(time, time, activeLinks);
+	}
+
+	/**
+	 * Adds the index of every interval active at some time within the given
+	 * range to the list. A link with several intervals in the range is added
+	 * once for each of them.
+	 *
+	 * @param from
+	 *            - the first time of the range in epoch milliseconds
+	 * @param to
+	 *            - the last time of the range in epoch milliseconds
+	 * @param activeLinks
+	 *            - the list to add the link indices to
+	 */
+	void linksActiveDuring(long from, long to, IntList activeLinks) {
+		if (from <= to) {
+			collect(0, size, from, to, activeLinks);
+		}
+	}
+
+	/**
+	 * Collects the links of the intervals overlapping the range within the
+	 * subtree of the given range of positions.
+	 *
+	 * @param low
+	 *            - the first position of the subtree
+	 * @param high
+	 *            - the position after the last of the subtree
+	 * @param from
+	 *            - the first time of the range
+	 * @param to
+	 *            - the last time of the range
+	 * @param activeLinks
+	 *            - the list to add the link indices to
+	 */
+	private void collect(int low, int high, long from, long to, IntList activeLinks) {
+		int middle;
+
+		// Skip subtrees that are empty or end before the range.
+		while (low < high) {
+			middle = (low + high) >>> 1;
+
+			if (maxEnds[middle] <= from) {
+				return;
+			}
+
+			collect(low, middle, from, to, activeLinks);
+
+			// Every later interval starts after the range as well.
+			if (starts[middle] > to) {
+				return;
+			}
+
+			if (ends[middle] > from) {
+				activeLinks.add(links[middle]);
+			}
+
+			low = middle + 1;
+		}
+	}
+
+	/**
+	 * Computes the latest end within the subtree of every position in the
+	 * given range.
+	 *
+	 * @param low
+	 *            - the first position of the subtree
+	 * @param high
+	 *            - the position after the last of the subtree
+	 * @return the latest end within the subtree
+	 */
+	private long computeMaxEnds(int low, int high) {
+		int middle;
+		long maxEnd;
+
+		if (low >= high) {
+			return Long.MIN_VALUE;
+		}
+
+		middle = (low + high) >>> 1;
+		maxEnd = Math.max(ends[middle], Math.max(computeMaxEnds(low, middle),
+				computeMaxEnds(middle + 1, high)));
+		maxEnds[middle] = maxEnd;
+
+		return maxEnd;
+	}
+}
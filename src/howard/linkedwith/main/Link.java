@@ -4,6 +4,7 @@
 package main;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -17,6 +18,18 @@ import exceptions.UninitializedObjectException;
  * A link tracks the dates of events between two users and whether they are
  * still linked actively.
  * 
+ * The events are kept as a sorted array of epoch milliseconds. Events
+ * alternate between establishment and tear down, so an event at an even index
+ * is an establishment and one at an odd index is a tear down. The link is
+ * active at a date when the number of events up to that date is odd, which is
+ * found by binary search.
+ * 
+ * A link held by an off heap link table may have its events sealed into a
+ * store shared by the links of the table, in which case the link reads its
+ * events from that store until it records another event. Such a link keeps
+ * only the pair key of its users and resolves them through the table when
+ * they are asked for, rather than holding a set of them.
+ * 
  * @author Shaun Howard
  */
 public class Link {
@@ -24,18 +37,41 @@ public class Link {
 	// Tracks if the link is yet established.
 	private boolean isValid;
 
-	// The set of users paired in the link.
+	// The set of users paired in the link, null when held off the heap.
 	private Set<User> users;
 
-	// The dates of events between paired users.
-	private List<Date> dates;
+	// The off heap link table resolving the users, null while on the heap.
+	private LinkTable table;
+
+	// The pair key of the users in the off heap link table.
+	private long pairKey;
+
+	// Initial capacity of the array of events.
+	private static final int INITIAL_EVENTS = 2;
+
+	// The times of events between paired users in epoch milliseconds.
+	private long[] events;
+
+	// The number of events between paired users.
+	private int eventCount;
+
+	// The store holding the events once sealed, null while on the heap.
+	private LongStore sealedEvents;
+
+	// The index of the first event of the link in the sealed store.
+	private int sealedOffset;
 
 	/**
 	 * Empty constructor creates a new link that is not yet established.
 	 */
 	public Link() {
 		this.isValid = false;
-		this.dates = new ArrayList<>();
+		this.events = new long[INITIAL_EVENTS];
+		this.eventCount = 0;
+		this.sealedEvents = null;
+		this.sealedOffset = 0;
+		this.table = null;
+		this.pairKey = LinkTable.NO_PAIR;
 	}
 
 	/**
@@ -87,7 +123,7 @@ public class Link {
 	public Set<User> getUsers() throws UninitializedObjectException {
 		LinkedWithUtilities.throwExceptionWhenInvalid(isValid());
 
-		return this.users;
+		return users();
 	}
 
 	/**
@@ -96,6 +132,11 @@ public class Link {
 	 * @return the list of dates for the link.
 	 */
 	public List<Date> getDates() {
+		List<Date> dates = new ArrayList<>(eventCount);
+
+		for (int index = 0; index < eventCount; index++) {
+			dates.add(new Date(event(index)));
+		}
 		return dates;
 	}
 
@@ -131,7 +172,7 @@ public class Link {
 	private boolean isAcceptableEstablishmentDate(Date date) {
 
 		// Check if no other dates exist and date is not null.
-		if (dates.isEmpty() && !LinkedWithUtilities.returnTrueWhenNull(date)) {
+		if (eventCount == 0 && !LinkedWithUtilities.returnTrueWhenNull(date)) {
 			return true;
 		} else if (LinkedWithUtilities.returnTrueWhenNull(date)) {
 			// Return false if null date.
@@ -156,8 +197,7 @@ public class Link {
 	 *         the input date does not precede the last date in the list
 	 */
 	private boolean checkTearDownAndSucceedingDate(Date date) {
-		return dates.size() % 2 == 0
-				&& !date.before(dates.get(dates.size() - 1));
+		return eventCount % 2 == 0 && date.getTime() >= lastEvent();
 	}
 
 	/**
@@ -190,7 +230,7 @@ public class Link {
 	 */
 	private void setInvalidDateStatus(Date date,
                                       SocialNetworkStatus status) {
-		if (dates.size() > 1 && date.before(dates.get(dates.size() - 1))) {
+		if (eventCount > 1 && date.getTime() < lastEvent()) {
 			status.setStatus(SocialNetworkStatus.Enum.INVALID_DATE);
 		}
 	}
@@ -206,7 +246,7 @@ public class Link {
 	private boolean isAcceptableTearDownDate(Date date) {
 
 		// Check if there is no establishment date or if input date is null.
-		if (dates.isEmpty() || LinkedWithUtilities.returnTrueWhenNull(date)) {
+		if (eventCount == 0 || LinkedWithUtilities.returnTrueWhenNull(date)) {
 			return false;
 		}
 
@@ -215,8 +255,7 @@ public class Link {
 		 * date and that the input date does not precede the last date in the
 		 * list.
 		 */
-		return dates.size() % 2 != 0
-				&& !date.before(dates.get(dates.size() - 1));
+		return eventCount % 2 != 0 && date.getTime() >= lastEvent();
 	}
 
 	/**
@@ -240,142 +279,166 @@ public class Link {
 		LinkedWithUtilities.throwExceptionWhenInvalid(isValid());
 		
 		// Check if the link is/was active on the input date.
-		if (dates.size() > 0 && isAcceptableActiveDate(date)) {
-			return true;
-		} 
-	
-		return false;
+		return isActiveAt(date.getTime());
 	}
 
 	/**
-	 * Determines if the given date is an acceptable active link date.
+	 * Returns whether the link is active at the given time, which is when the
+	 * last event at or before the time is an establishment.
 	 * 
-	 * @param date
-	 *            - the date to check for acceptance as active date
+	 * @param time
+	 *            - the time in epoch milliseconds to check for link activity on
 	 * 
-	 * @return whether the link is/was active on the input date
+	 * @return whether the link is active at the given time
 	 */
-	private boolean isAcceptableActiveDate(Date date) {
-		if (LinkedWithUtilities.returnTrueWhenNull(date)) {
-			return false;
-		}
-
-		Iterator<Date> iter = dates.listIterator();
-		Date dateInList = null;
+	boolean isActiveAt(long time) {
+		return countEventsUpTo(time) % 2 != 0;
+	}
 
-		// Check if the input date is before a tear down date or
-		// it is equal to an establishment date.
-		while (iter.hasNext()) {
-			dateInList = iter.next();
-			if (isActiveInDateRange(date, dateInList)) {
-				return true;
+	/**
+	 * Counts the events at or before the given time by binary search, which is
+	 * also the index of the first event after the time.
+	 * 
+	 * @param time
+	 *            - the time in epoch milliseconds to count the events up to
+	 * 
+	 * @return the number of events at or before the given time
+	 */
+	int countEventsUpTo(long time) {
+		int low = 0;
+		int high = eventCount;
+		int middle;
+
+		// Find the first event after the given time.
+		while (low < high) {
+			middle = (low + high) >>> 1;
+
+			if (event(middle) <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
 			}
 		}
 
-		// Otherwise check if date is active after last date in list.
-		return isActiveAfterLastDate(date, dateInList);
+		return low;
 	}
 
 	/**
-	 * Returns whether the input date is before a tear down date or is equal to
-	 * an establishment date.
-	 * 
-	 * @param dateToCheck
-	 *            - the date to check for activity
-	 * @param dateInList
-	 *            - the date to compare dateToCheck with
-	 * 
-	 * @return whether the date to check is before a tear down date in list or
-	 *         is equal to an establishment date in list
+	 * Gets the number of events recorded in the link.
+	 *
+	 * @return the number of events in the link
 	 */
-	private boolean isActiveInDateRange(Date dateToCheck, Date dateInList) {
-
-		/*
-		 * Check if date to check precedes date in list and that date is a tear
-		 * down date. Otherwise, the date may be equal to an establishment date.
-		 */
-		if ((dateToCheck.before(dateInList)
-				&& isTearDownDate(dateInList))) {
-			return true;
-		}
-		else if (isEstablishmentDateEqualToDateInList(dateToCheck, dateInList)) {
-			return true;
-		}
+	int eventCount() {
+		return this.eventCount;
+	}
 
-		return false;
+	/**
+	 * Gets the time of the event at the given index in epoch milliseconds.
+	 *
+	 * @param index
+	 *            - the index of the event, below the event count
+	 *
+	 * @return the time of the event at the index
+	 */
+	long eventAt(int index) {
+		return event(index);
 	}
 
 	/**
-	 * Checks if the date to check is equal to the date in list and if the date
-	 * in list is an establishment date.
-	 * 
-	 * @param dateToCheck
-	 *            - date to compare with date in list
-	 * @param dateInList
-	 *            - date to check for establishment
-	 * 
-	 * @return whether the date to check is equal to the date in the list and if
-	 *         that date is an establishment date
+	 * Makes the link valid between the users of the given pair key in the
+	 * given off heap link table, with events that are already sealed in the
+	 * given store, as when the link is read from a graph file.
+	 *
+	 * @param table
+	 *            - the link table resolving the users of the link
+	 * @param key
+	 *            - the pair key of the users of the link
+	 * @param store
+	 *            - the store holding the events of the link
+	 * @param offset
+	 *            - the index of the first event in the store
+	 * @param count
+	 *            - the number of events of the link
 	 */
-	private boolean isEstablishmentDateEqualToDateInList(Date dateToCheck,
-                                                         Date dateInList) {
-		return dateToCheck.equals(dateInList)
-				&& isEstablishmentDate(dateInList);
+	void attach(LinkTable table, long key, LongStore store, int offset, int count) {
+		bind(table, key);
+		this.isValid = true;
+		this.events = null;
+		this.eventCount = count;
+		this.sealedEvents = store;
+		this.sealedOffset = offset;
 	}
 
 	/**
-	 * Returns whether the date to check is active after the last date in list.
-	 * 
-	 * @param dateToCheck
-	 *            - the date to check for activity
-	 * @param lastDate
-	 *            - the last date in date list
-	 * 
-	 * @return whether the date to check is active after the last date in the
-	 *         list
+	 * Binds the link to the users of the given pair key in the given off heap
+	 * link table, releasing the set of users.
+	 *
+	 * @param table
+	 *            - the link table resolving the users of the link
+	 * @param key
+	 *            - the pair key of the users of the link
 	 */
-	private boolean isActiveAfterLastDate(Date dateToCheck, Date lastDate) {
-		return dateToCheck.after(lastDate) && isEstablishmentDate(lastDate);
+	void bind(LinkTable table, long key) {
+		this.users = null;
+		this.table = table;
+		this.pairKey = key;
 	}
 
 	/**
-	 * Returns if the input date is an establishment date.
-	 * 
-	 * @param dateInList
-	 *            - the date to check for establishment on
-	 * 
-	 * @return whether the input date is an establishment date
+	 * Seals the events of the link into the given store starting at the given
+	 * index, releasing the array of events on the heap.
+	 *
+	 * @param store
+	 *            - the store to seal the events into
+	 * @param offset
+	 *            - the index of the first event in the store
 	 */
-	private boolean isEstablishmentDate(Date dateInList) {
-		// Check if there are no dates or if input date is null.
-		if (dates.isEmpty()
-				|| LinkedWithUtilities.returnTrueWhenNull(dateInList)) {
-			return false;
+	void seal(LongStore store, int offset) {
+		for (int index = 0; index < eventCount; index++) {
+			store.set(offset + index, event(index));
 		}
 
-		// Return whether the date is an establishment date.
-		return dates.indexOf(dateInList) % 2 == 0
-				|| dates.indexOf(dateInList) == 0;
+		this.events = null;
+		this.sealedEvents = store;
+		this.sealedOffset = offset;
 	}
 
 	/**
-	 * Returns if the input date is a tear down date.
-	 * 
-	 * @param dateInList
-	 *            - the date to check for tear down on
-	 * 
-	 * @return whether the input date is an tear down date
+	 * Gets the users of the link from the set of users or, when bound to an
+	 * off heap link table, from the table.
+	 *
+	 * @return the two users of the link
 	 */
-	private boolean isTearDownDate(Date dateInList) {
-		// Check if there are no dates or if input date is null.
-		if (dates.isEmpty()
-				|| LinkedWithUtilities.returnTrueWhenNull(dateInList)) {
-			return false;
+	private Set<User> users() {
+		if (table != null) {
+			return table.usersOf(pairKey);
 		}
+		return users;
+	}
 
-		// Return whether the date is a tear down date.
-		return dates.indexOf(dateInList) > -1
-				&& dates.indexOf(dateInList) % 2 != 0;
+	/**
+	 * Gets the time of the last event recorded in the link.
+	 * 
+	 * @return the time of the last event in epoch milliseconds
+	 */
+	private long lastEvent() {
+		return event(eventCount - 1);
+	}
+
+	/**
+	 * Gets the time of the event at the given index from the array of events
+	 * or, when sealed, from the sealed store.
+	 *
+	 * @param index
+	 *            - the index of the event, below the event count
+	 *
+	 * @return the time of the event at the index
+	 */
+	private long event(int index) {
+		if (sealedEvents != null) {
+			return sealedEvents.get(sealedOffset + index);
+		}
+		return events[index];
 	}
 
 	/**
@@ -392,8 +455,8 @@ public class Link {
 		LinkedWithUtilities.throwExceptionWhenInvalid(isValid());
 
 		// Check if list of dates contains dates and the link is valid.
-		if (!dates.isEmpty()) {
-			return dates.get(0);
+		if (eventCount > 0) {
+			return new Date(event(0));
 		}
 		return null;
 	}
@@ -431,15 +494,11 @@ public class Link {
 	 * @return the date after the input date from the list of dates
 	 */
 	private Date getDateAfter(Date date) {
-		Iterator<Date> iter = dates.listIterator();
-		Date dateInList = null;
+		int index = countEventsUpTo(date.getTime());
 
 		// Check for the date that comes after the input date.
-		while (iter.hasNext()) {
-			dateInList = iter.next();
-			if (date.before(dateInList)) {
-				return dateInList;
-			}
+		if (index < eventCount) {
+			return new Date(event(index));
 		}
 
 		// Otherwise there is no following date in the list.
@@ -486,11 +545,43 @@ public class Link {
             throws NullPointerException, UninitializedObjectException {
 
 		if (linkChangeIsValid(date, establishment, status)) {
-			dates.add(date);
+			addEvent(date.getTime());
 			status.setStatus(SocialNetworkStatus.Enum.SUCCESS);
 		}
 	}
 
+	/**
+	 * Appends an event at the given time, which does not precede the last
+	 * event, growing the array of events when full.
+	 * 
+	 * @param time
+	 *            - the time of the event in epoch milliseconds
+	 */
+	private void addEvent(long time) {
+		if (sealedEvents != null) {
+			unseal();
+		}
+		if (eventCount == events.length) {
+			events = Arrays.copyOf(events, eventCount * 2);
+		}
+		events[eventCount++] = time;
+	}
+
+	/**
+	 * Moves the sealed events of the link back into an array of events on the
+	 * heap with room for another event.
+	 */
+	private void unseal() {
+		long[] unsealed = new long[Math.max(INITIAL_EVENTS, eventCount * 2)];
+
+		for (int index = 0; index < eventCount; index++) {
+			unsealed[index] = event(index);
+		}
+
+		this.events = unsealed;
+		this.sealedEvents = null;
+	}
+
 	/**
 	 * Checks if the link change is valid.
 	 * 
@@ -582,7 +673,7 @@ public class Link {
 		StringBuilder builder = new StringBuilder();
 		builder.append("Link between: ");
 
-		Iterator<User> iter = users.iterator();
+		Iterator<User> iter = users().iterator();
 		boolean firstUser = true;
 
 		// Append users to string builder with 'and' separating them.
@@ -0,0 +1,503 @@
+/**
+ *
+ */
+package main;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Link table holds the links of a social network keyed by the pair of user
+ * ordinals they connect.
+ *
+ * A pair of users is packed into a single long with the smaller ordinal in the
+ * high half and the larger in the low half, so the key does not depend on the
+ * order of the users. Keys are stored in an open-addressing table with linear
+ * probing, which needs no allocation per lookup. Every link is also given a
+ * dense link index in the order it was added.
+ *
+ * The slots and pair keys are kept in stores of the storage mode of the table.
+ * When the table is off the heap, sealing it also moves the event timelines of
+ * its links into one shared off heap store, and its links resolve their users
+ * from their pair keys instead of holding sets of them.
+ *
+ * @author Shaun Howard
+ */
+class LinkTable {
+
+	// Key of an empty slot in the table, never a valid pair of ordinals.
+	static final long NO_PAIR = -1L;
+
+	// Index returned when no link is stored for a pair.
+	static final int NO_LINK = -1;
+
+	// Initial number of slots in the table, always a power of two.
+	private static final int INITIAL_CAPACITY = 16;
+
+	// Storage mode of the slots, keys and sealed timelines.
+	private final StorageMode mode;
+
+	// Pair keys stored in each slot of the table.
+	private LongStore slotKeys;
+
+	// Link indices stored in each slot of the table.
+	private IntStore slotLinks;
+
+	// Links in the order they were added.
+	private Link[] links;
+
+	// Pair keys of the links in the order they were added.
+	private LongStore linkKeys;
+
+	// Number of links in the table.
+	private int size;
+
+	// Users by ordinal, used to resolve the users of off heap links.
+	private List<User> users;
+
+	// Sealed timelines of the links read from a graph file.
+	private LongStore storedTimelines;
+
+	// Start of the timeline of each link read from a graph file.
+	private IntStore storedOffsets;
+
+	// Whether the slots are read only stores of a graph file.
+	private boolean slotsReadOnly;
+
+	/**
+	 * Constructor to create an empty link table in the given storage mode.
+	 *
+	 * @param mode
+	 *            - the storage mode of the table
+	 * @param users
+	 *            - the users of the social network by ordinal
+	 */
+	LinkTable(StorageMode mode, List<User> users) {
+		this.mode = mode;
+		this.slotKeys = LongStore.allocate(mode, INITIAL_CAPACITY);
+		this.slotLinks = IntStore.allocate(mode, INITIAL_CAPACITY);
+		this.links = new Link[INITIAL_CAPACITY];
+		this.linkKeys = LongStore.allocate(mode, INITIAL_CAPACITY);
+		this.size = 0;
+		this.users = users;
+		this.storedTimelines = null;
+		this.storedOffsets = null;
+		this.slotsReadOnly = false;
+		slotKeys.fill(NO_PAIR);
+	}
+
+	/**
+	 * Constructor to create an off heap link table over the given stores, as
+	 * read from a graph file. Links are materialized from their pair keys and
+	 * sealed timelines the first time they are needed, and the read only slots
+	 * are copied before the first link is added.
+	 *
+	 * @param slotKeys
+	 *            - the pair keys stored in each slot, a power of two in length
+	 * @param slotLinks
+	 *            - the link indices stored in each slot
+	 * @param linkKeys
+	 *            - the pair keys of the links in order of their indices
+	 * @param timelines
+	 *            - the sealed event timelines of the links
+	 * @param timelineOffsets
+	 *            - the start of the timeline of each link, followed by the
+	 *            total number of events
+	 * @param users
+	 *            - the users of the social network by ordinal
+	 */
+	LinkTable(LongStore slotKeys, IntStore slotLinks, LongStore linkKeys,
+			LongStore timelines, IntStore timelineOffsets, List<User> users) {
+		this.mode = StorageMode.OFF_HEAP;
+		this.slotKeys = slotKeys;
+		this.slotLinks = slotLinks;
+		this.links = new Link[linkKeys.length()];
+		this.linkKeys = linkKeys;
+		this.size = linkKeys.length();
+		this.users = users;
+		this.storedTimelines = timelines;
+		this.storedOffsets = timelineOffsets;
+		this.slotsReadOnly = true;
+	}
+
+	/**
+	 * Packs the given user ordinals into an order independent pair key.
+	 *
+	 * @param first
+	 *            - the ordinal of one user
+	 * @param second
+	 *            - the ordinal of the other user
+	 * @return the pair key of the two users
+	 */
+	static long pairKey(int first, int second) {
+		int low = Math.min(first, second);
+		int high = Math.max(first, second);
+
+		return ((long) low << 32) | (high & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Gets the smaller user ordinal of the given pair key.
+	 *
+	 * @param key
+	 *            - the pair key
+	 * @return the smaller user ordinal of the pair
+	 */
+	static int firstOf(long key) {
+		return (int) (key >>> 32);
+	}
+
+	/**
+	 * Gets the larger user ordinal of the given pair key.
+	 *
+	 * @param key
+	 *            - the pair key
+	 * @return the larger user ordinal of the pair
+	 */
+	static int secondOf(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * Gets the number of links in the table.
+	 *
+	 * @return the number of links in the table
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Finds the index of the link stored for the given pair key.
+	 *
+	 * @param key
+	 *            - the pair key of the link
+	 * @return the index of the link or NO_LINK when the pair is not linked
+	 */
+	int find(long key) {
+		int mask = slotKeys.length() - 1;
+		int slot = slotOf(key, mask);
+		long slotKey;
+
+		// Probe until the key or an empty slot is found.
+		while ((slotKey = slotKeys.get(slot)) != NO_PAIR) {
+			if (slotKey == key) {
+				return slotLinks.get(slot);
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		return NO_LINK;
+	}
+
+	/**
+	 * Gets the link stored for the given pair key.
+	 *
+	 * @param key
+	 *            - the pair key of the link
+	 * @return the link between the pair or null when the pair is not linked
+	 */
+	Link get(long key) {
+		int index = find(key);
+
+		if (index == NO_LINK) {
+			return null;
+		}
+		return link(index);
+	}
+
+	/**
+	 * Adds the link for the given pair key, which must not be in the table.
+	 * When the table is off the heap, the link is bound to the pair key so it
+	 * no longer holds a set of its users.
+	 *
+	 * @param key
+	 *            - the pair key of the link
+	 * @param link
+	 *            - the link between the pair
+	 * @return the index given to the link
+	 */
+	int add(long key, Link link) {
+		assert find(key) == NO_LINK : "Pair is already linked.";
+
+		// Keep the table at most half full.
+		if ((size + 1) * 2 > slotKeys.length()) {
+			resize(slotKeys.length() * 2);
+		} else if (slotsReadOnly) {
+			slotKeys = slotKeys.copyOf(slotKeys.length());
+			slotLinks = slotLinks.copyOf(slotLinks.length());
+		}
+		slotsReadOnly = false;
+
+		if (size == links.length) {
+			links = Arrays.copyOf(links, Math.max(INITIAL_CAPACITY, size * 2));
+			linkKeys = linkKeys.copyOf(links.length);
+		}
+
+		if (mode == StorageMode.OFF_HEAP) {
+			link.bind(this, key);
+		}
+
+		links[size] = link;
+		linkKeys.set(size, key);
+		insert(key, size);
+
+		return size++;
+	}
+
+	/**
+	 * Gets the link at the given link index.
+	 *
+	 * @param index
+	 *            - the index of the link
+	 * @return the link at the index
+	 */
+	Link link(int index) {
+		if (links[index] == null) {
+			links[index] = materialize(index);
+		}
+		return links[index];
+	}
+
+	/**
+	 * Gets the number of events of the link at the given link index, reading a
+	 * link read from a graph file from its sealed timeline without
+	 * materializing it.
+	 *
+	 * @param index
+	 *            - the index of the link
+	 * @return the number of events of the link at the index
+	 */
+	int eventCount(int index) {
+		if (links[index] != null) {
+			return links[index].eventCount();
+		}
+		return storedOffsets.get(index + 1) - storedOffsets.get(index);
+	}
+
+	/**
+	 * Gets the time of an event of the link at the given link index, reading a
+	 * link read from a graph file from its sealed timeline without
+	 * materializing it.
+	 *
+	 * @param index
+	 *            - the index of the link
+	 * @param event
+	 *            - the index of the event, below the event count of the link
+	 * @return the time of the event in epoch milliseconds
+	 */
+	long eventAt(int index, int event) {
+		if (links[index] != null) {
+			return links[index].eventAt(event);
+		}
+		return storedTimelines.get(storedOffsets.get(index) + event);
+	}
+
+	/**
+	 * Returns whether the link at the given link index is active at the given
+	 * time. A link read from a graph file is searched in its sealed timeline
+	 * without materializing it, so traversals running on several threads only
+	 * ever read the table.
+	 *
+	 * @param index
+	 *            - the index of the link
+	 * @param time
+	 *            - the time in epoch milliseconds to check for link activity on
+	 * @return whether the link is active at the time
+	 */
+	boolean isActiveAt(int index, long time) {
+		int low, high, middle;
+
+		if (links[index] != null) {
+			return links[index].isActiveAt(time);
+		}
+
+		low = storedOffsets.get(index);
+		high = storedOffsets.get(index + 1);
+		while (low < high) {
+			middle = (low + high) >>> 1;
+
+			if (storedTimelines.get(middle) <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return (low - storedOffsets.get(index)) % 2 != 0;
+	}
+
+	/**
+	 * Gets the users of the given pair key.
+	 *
+	 * @param key
+	 *            - the pair key of the users
+	 * @return the two users of the pair
+	 */
+	Set<User> usersOf(long key) {
+		Set<User> pair = new HashSet<>();
+
+		pair.add(users.get(firstOf(key)));
+		pair.add(users.get(secondOf(key)));
+		return pair;
+	}
+
+	/**
+	 * Gets the pair key of the link at the given link index.
+	 *
+	 * @param index
+	 *            - the index of the link
+	 * @return the pair key of the link at the index
+	 */
+	long key(int index) {
+		return linkKeys.get(index);
+	}
+
+	/**
+	 * Seals the event timelines of every link into one shared store when the
+	 * table is off the heap, so the timelines no longer occupy heap arrays. A
+	 * link that records another event afterwards moves its timeline back onto
+	 * the heap until the next seal. The timelines of links read from a graph
+	 * file that were never materialized are copied from their stored
+	 * timelines, which then point into the new store.
+	 */
+	void sealTimelines() {
+		LongStore timelines;
+		IntStore offsets = null;
+		int totalEvents = 0;
+		int offset = 0;
+
+		if (mode != StorageMode.OFF_HEAP) {
+			return;
+		}
+
+		for (int index = 0; index < size; index++) {
+			totalEvents += eventCount(index);
+		}
+
+		timelines = LongStore.allocate(mode, totalEvents);
+		if (storedOffsets != null) {
+			offsets = IntStore.allocate(mode, size + 1);
+		}
+
+		for (int index = 0; index < size; index++) {
+			if (offsets != null) {
+				offsets.set(index, offset);
+			}
+
+			if (links[index] != null) {
+				links[index].seal(timelines, offset);
+			} else {
+				for (int event = 0; event < eventCount(index); event++) {
+					timelines.set(offset + event, eventAt(index, event));
+				}
+			}
+			offset += eventCount(index);
+		}
+
+		if (offsets != null) {
+			offsets.set(size, totalEvents);
+			storedTimelines = timelines;
+			storedOffsets = offsets;
+		}
+	}
+
+	/**
+	 * Gets the number of slots in the table.
+	 *
+	 * @return the number of slots
+	 */
+	int slotCapacity() {
+		return slotKeys.length();
+	}
+
+	/**
+	 * Gets the pair key stored in the given slot.
+	 *
+	 * @param slot
+	 *            - the slot, below the slot capacity
+	 * @return the pair key in the slot or NO_PAIR when the slot is empty
+	 */
+	long slotKey(int slot) {
+		return slotKeys.get(slot);
+	}
+
+	/**
+	 * Gets the link index stored in the given slot.
+	 *
+	 * @param slot
+	 *            - the slot, below the slot capacity
+	 * @return the link index in the slot
+	 */
+	int slotLink(int slot) {
+		return slotLinks.get(slot);
+	}
+
+	/**
+	 * Materializes the link of the given index read from a graph file from its
+	 * pair key and sealed timeline.
+	 *
+	 * @param index
+	 *            - the index of the link
+	 * @return the materialized link
+	 */
+	private Link materialize(int index) {
+		Link link = new Link();
+
+		link.attach(this, linkKeys.get(index), storedTimelines, storedOffsets.get(index),
+				storedOffsets.get(index + 1) - storedOffsets.get(index));
+		return link;
+	}
+
+	/**
+	 * Inserts the key and link index into the first free slot of its probe
+	 * sequence.
+	 *
+	 * @param key
+	 *            - the pair key to insert
+	 * @param index
+	 *            - the link index to insert
+	 */
+	private void insert(long key, int index) {
+		int mask = slotKeys.length() - 1;
+		int slot = slotOf(key, mask);
+
+		while (slotKeys.get(slot) != NO_PAIR) {
+			slot = (slot + 1) & mask;
+		}
+
+		slotKeys.set(slot, key);
+		slotLinks.set(slot, index);
+	}
+
+	/**
+	 * Resizes the table to the given number of slots and reinserts every link.
+	 *
+	 * @param capacity
+	 *            - the new number of slots, a power of two
+	 */
+	private void resize(int capacity) {
+		slotKeys = LongStore.allocate(mode, capacity);
+		slotLinks = IntStore.allocate(mode, capacity);
+		slotKeys.fill(NO_PAIR);
+
+		for (int index = 0; index < size; index++) {
+			insert(linkKeys.get(index), index);
+		}
+	}
+
+	/**
+	 * Gets the home slot of the given key by mixing its bits.
+	 *
+	 * @param key
+	 *            - the pair key
+	 * @param mask
+	 *            - the mask of the table capacity
+	 * @return the home slot of the key
+	 */
+	private static int slotOf(long key, int mask) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+}
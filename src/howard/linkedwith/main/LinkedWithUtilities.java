@@ -3,7 +3,7 @@
  */
 package main;
 
-import java.util.Set;
+import java.util.Map;
 
 import exceptions.UninitializedObjectException;
 
@@ -62,39 +62,15 @@ public class LinkedWithUtilities {
 	}
 	
 	/**
-	 * Determines whether the two input sets are the same size.
-	 * Sets the social network status based on result.
+	 * Checks if the input user id is within the given user index.
+	 * Sets invalid user status when user is not in the index.
 	 * 
-	 * @param users - the user set
-	 * @param ids - the string id set
-	 * @param status - the social network status to set based on this evaluation
-	 */
-	static void setInvalidUsersStatusIfSetSizeUnequal(Set<User> users, Set<String> ids, SocialNetworkStatus status){	
-		if (users.size() != ids.size() || users.size() > 2) {
-			status.setStatus(SocialNetworkStatus.Enum.INVALID_USERS);
-		}
-	}
-	
-	/**
-	 * Checks if the input user id is within the given user set.
-	 * Sets invalid user status when user is not in set.
-	 * 
-	 * @param id - the user id to look for in user set
+	 * @param id - the user id to look for in user index
+	 * @param userIndex - the index of users by id to check for containment
 	 * @param status - the social network status
-	 * @param userSet - the user set to check for containment
 	 */
-	static void setStatusForInvalidUsers(String id, Set<User> userSet, SocialNetworkStatus status){
-		boolean userInSet = false;
-
-        USER_SEARCH_LOOP:
-        for (User user : userSet){
-            if (user.getID().equals(id)){
-                userInSet = true;
-                break USER_SEARCH_LOOP;
-            }
-        }
-
-		if (!userInSet){
+	static void setStatusForInvalidUsers(String id, Map<String, ?> userIndex, SocialNetworkStatus status){
+		if (!userIndex.containsKey(id)){
 			status.setStatus(SocialNetworkStatus.Enum.INVALID_USERS);
 		}
 	}
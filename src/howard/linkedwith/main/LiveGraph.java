@@ -0,0 +1,65 @@
+/**
+ *
+ */
+package main;
+
+/**
+ * Live graph is the view of the current adjacency of a social network at a
+ * given time, checking the activity of each link as it is traversed. The
+ * activity is read by link index, so the view never materializes a link and
+ * can be traversed from several threads at once.
+ *
+ * @author Shaun Howard
+ */
+class LiveGraph extends ActiveGraph {
+
+	// The adjacency of the users.
+	private final UserGraph userGraph;
+
+	// The links of the social network.
+	private final LinkTable userLinks;
+
+	// The time of the view in epoch milliseconds.
+	private final long time;
+
+	/**
+	 * Constructor to create a view of the given adjacency at the given time.
+	 *
+	 * @param userGraph
+	 *            - the adjacency of the users
+	 * @param userLinks
+	 *            - the links of the social network
+	 * @param time
+	 *            - the time of the view in epoch milliseconds
+	 */
+	LiveGraph(UserGraph userGraph, LinkTable userLinks, long time) {
+		this.userGraph = userGraph;
+		this.userLinks = userLinks;
+		this.time = time;
+	}
+
+	@Override
+	int userCount() {
+		return userGraph.userCount();
+	}
+
+	@Override
+	long edgeCount() {
+		return 2L * userLinks.size();
+	}
+
+	@Override
+	int degree(int user) {
+		return userGraph.degree(user);
+	}
+
+	@Override
+	int neighbor(int user, int position) {
+		return userGraph.neighbor(user, position);
+	}
+
+	@Override
+	boolean isActive(int user, int position) {
+		return userLinks.isActiveAt(userGraph.link(user, position), time);
+	}
+}
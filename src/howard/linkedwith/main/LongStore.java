@@ -0,0 +1,204 @@
+/**
+ *
+ */
+package main;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Long store is a fixed length array of longs kept either on the heap or in a
+ * direct buffer outside of the heap, depending on the storage mode it was
+ * allocated with.
+ *
+ * @author Shaun Howard
+ */
+abstract class LongStore {
+
+	/**
+	 * Allocates a store of the given length filled with zeros.
+	 *
+	 * @param mode
+	 *            - the storage mode of the store
+	 * @param length
+	 *            - the number of longs in the store
+	 * @return the allocated store
+	 */
+	static LongStore allocate(StorageMode mode, int length) {
+		if (mode == StorageMode.OFF_HEAP) {
+			return new DirectLongStore(length);
+		}
+		return new HeapLongStore(length);
+	}
+
+	/**
+	 * Wraps the given buffer, such as a mapped section of a file, as a store
+	 * of the longs it holds in its byte order.
+	 *
+	 * @param buffer
+	 *            - the buffer to read and write the longs in
+	 * @return the store over the buffer
+	 */
+	static LongStore wrap(ByteBuffer buffer) {
+		return new DirectLongStore(buffer.asLongBuffer());
+	}
+
+	/**
+	 * Gets the number of longs in the store.
+	 *
+	 * @return the length of the store
+	 */
+	abstract int length();
+
+	/**
+	 * Gets the long at the given index.
+	 *
+	 * @param index
+	 *            - the index, below the length
+	 * @return the long at the index
+	 */
+	abstract long get(int index);
+
+	/**
+	 * Sets the long at the given index.
+	 *
+	 * @param index
+	 *            - the index, below the length
+	 * @param value
+	 *            - the long to set
+	 */
+	abstract void set(int index, long value);
+
+	/**
+	 * Sets every long of the store to the given value.
+	 *
+	 * @param value
+	 *            - the long to fill the store with
+	 */
+	abstract void fill(long value);
+
+	/**
+	 * Copies the store into a new store of the same mode with the given
+	 * length, padding with zeros.
+	 *
+	 * @param length
+	 *            - the length of the copy
+	 * @return the copy of the store
+	 */
+	abstract LongStore copyOf(int length);
+
+	/**
+	 * Long store backed by a long array on the heap.
+	 */
+	private static final class HeapLongStore extends LongStore {
+
+		// The longs of the store.
+		private final long[] values;
+
+		HeapLongStore(int length) {
+			this.values = new long[length];
+		}
+
+		private HeapLongStore(long[] values) {
+			this.values = values;
+		}
+
+		@Override
+		int length() {
+			return values.length;
+		}
+
+		@Override
+		long get(int index) {
+			return values[index];
+		}
+
+		@Override
+		void set(int index, long value) {
+			values[index] = value;
+		}
+
+		@Override
+		void fill(long value) {
+			Arrays.fill(values, value);
+		}
+
+		@Override
+		LongStore copyOf(int length) {
+			return new HeapLongStore(Arrays.copyOf(values, length));
+		}
+	}
+
+	/**
+	 * Long store backed by a direct buffer outside of the heap.
+	 */
+	private static final class DirectLongStore extends LongStore {
+
+		// The longs of the store in native byte order.
+		private final LongBuffer values;
+
+		DirectLongStore(int length) {
+			this.values = ByteBuffer.allocateDirect(byteLength(length))
+					.order(ByteOrder.nativeOrder()).asLongBuffer();
+		}
+
+		DirectLongStore(LongBuffer values) {
+			this.values = values;
+		}
+
+		@Override
+		int length() {
+			return values.capacity();
+		}
+
+		@Override
+		long get(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		void set(int index, long value) {
+			values.put(index, value);
+		}
+
+		@Override
+		void fill(long value) {
+			for (int index = 0; index < values.capacity(); index++) {
+				values.put(index, value);
+			}
+		}
+
+		@Override
+		LongStore copyOf(int length) {
+			DirectLongStore copy = new DirectLongStore(length);
+			LongBuffer source = values.duplicate();
+
+			source.limit(Math.min(length, values.capacity()));
+			copy.values.put(source);
+			copy.values.clear();
+			return copy;
+		}
+
+		/**
+		 * Gets the number of bytes of a buffer holding the given number of
+		 * longs.
+		 *
+		 * @param length
+		 *            - the number of longs
+		 * @return the number of bytes of the buffer
+		 *
+		 * @throws IllegalArgumentException
+		 *             - thrown when the longs do not fit in one buffer
+		 */
+		private static int byteLength(int length) throws IllegalArgumentException {
+			long bytes = (long) length * Long.BYTES;
+
+			if (bytes > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Too many longs for a direct buffer: " + length);
+			}
+			return (int) bytes;
+		}
+	}
+}
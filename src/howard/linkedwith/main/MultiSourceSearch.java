@@ -0,0 +1,272 @@
+/**
+ *
+ */
+package main;
+
+/**
+ * Multi source search reaches the users within a max distance of up to 64
+ * source users at once, sharing every scan of the links between the sources.
+ *
+ * Each source is given one bit of a long. A user holds the bits of the sources
+ * that reached it and the bits of the sources it is on the frontier of, so one
+ * pass over the links of a frontier user expands it for every source at once,
+ * and each link is checked for activity only when it reaches a user for some
+ * source. Once the frontier holds a large part of the edges, every user instead
+ * takes the bits of the frontier users it is linked to until it is reached by
+ * all of the sources. The users newly reached at each level are put in order
+ * of ordinal, so the members of each source come out grouped by distance and
+ * sorted within a distance, as a neighborhood keeps them.
+ *
+ * A search may run any number of batches of sources over the same graph; the
+ * state of a batch is cleared in time proportional to the users it reached.
+ * Sources whose neighborhoods barely overlap share few scans, and are then
+ * reached faster one at a time by a breadth first search, which a batch
+ * reports.
+ *
+ * @author Shaun Howard
+ */
+final class MultiSourceSearch {
+
+	// Most sources traversed by one batch, one for each bit of a long.
+	static final int BATCH_SOURCES = 64;
+
+	// Expand bottom up once the frontier has more than this fraction of the edges.
+	private static final int TOP_DOWN_FACTOR = 14;
+
+	// Put a level in order by a pass over the users once it has more than this fraction of them.
+	private static final int SCAN_FACTOR = 32;
+
+	// Least number of sources reaching each user on average for a batch to share its scans.
+	private static final int SHARING_SOURCES = 2;
+
+	// The graph of the users at the date of the search.
+	private final ActiveGraph graph;
+
+	// Bits of the sources that reached each user, followed by the bits of the sources each user
+	// is on the next frontier of, side by side so that reaching a user touches a single line.
+	private final long[] reached;
+
+	// Bits of the sources each user is on the frontier of.
+	private final long[] frontier;
+
+	// Users on the frontier.
+	private IntList frontierUsers = new IntList();
+
+	// Users on the next frontier.
+	private IntList nextUsers = new IntList();
+
+	// Users reached by any source of the batch.
+	private final IntList reachedUsers = new IntList();
+
+	/**
+	 * Constructor to create a search over the given graph.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the search
+	 */
+	MultiSourceSearch(ActiveGraph graph) {
+		this.graph = graph;
+		this.reached = new long[2 * graph.userCount()];
+		this.frontier = new long[graph.userCount()];
+	}
+
+	/**
+	 * Reaches every user within the max distance of each source of a batch,
+	 * adding the members of each source grouped by distance to its lists.
+	 *
+	 * @param sources
+	 *            - the ordinals of the source users
+	 * @param first
+	 *            - the index of the first source of the batch
+	 * @param count
+	 *            - the number of sources of the batch, at most BATCH_SOURCES
+	 * @param distance_max
+	 *            - the greatest distance to reach users at
+	 * @param members
+	 *            - the empty lists to add the ordinals of the members of each
+	 *            source of the batch to, sorted within a distance
+	 * @param distanceStarts
+	 *            - the empty lists to add the start of the members at each
+	 *            distance to, followed by the number of members
+	 * @return whether the sources reached enough of the same users for the
+	 *         batch to have shared its scans of the links
+	 */
+	boolean traverse(int[] sources, int first, int count, int distance_max, IntList[] members,
+			IntList[] distanceStarts) {
+		long batch = count == BATCH_SOURCES ? -1L : (1L << count) - 1;
+		long frontierEdges = 0;
+		long memberCount = 0;
+		int user;
+
+		try {
+			for (int bit = 0; bit < count; bit++) {
+				user = sources[first + bit];
+
+				if (reached[2 * user] == 0) {
+					frontierUsers.add(user);
+					reachedUsers.add(user);
+					frontierEdges += graph.degree(user);
+				}
+				reached[2 * user] |= 1L << bit;
+				frontier[user] |= 1L << bit;
+				members[bit].add(user);
+				distanceStarts[bit].add(0);
+			}
+
+			for (int distance = 0; distance < distance_max && !frontierUsers.isEmpty(); distance++) {
+				if (frontierEdges > graph.edgeCount() / TOP_DOWN_FACTOR) {
+					bottomUpStep(batch);
+				} else {
+					topDownStep();
+				}
+
+				frontierEdges = addLevel(members, distanceStarts);
+			}
+
+			for (int bit = 0; bit < count; bit++) {
+				distanceStarts[bit].add(members[bit].size());
+				memberCount += members[bit].size();
+			}
+
+			return memberCount >= (long) SHARING_SOURCES * reachedUsers.size();
+		} finally {
+			clear();
+		}
+	}
+
+	/**
+	 * Expands a level top down: every frontier user passes the bits of its
+	 * sources to each user it is actively linked to that has not been reached
+	 * by them, and the users reached are sorted by ordinal.
+	 */
+	private void topDownStep() {
+		int user, linkedUser;
+		long bits, found;
+
+		for (int index = 0; index < frontierUsers.size(); index++) {
+			user = frontierUsers.get(index);
+			bits = frontier[user];
+
+			for (int position = 0; position < graph.degree(user); position++) {
+				linkedUser = graph.neighbor(user, position);
+				found = bits & ~reached[2 * linkedUser];
+
+				if (found != 0 && graph.isActive(user, position)) {
+					if (reached[2 * linkedUser + 1] == 0) {
+						nextUsers.add(linkedUser);
+					}
+					reached[2 * linkedUser] |= found;
+					reached[2 * linkedUser + 1] |= found;
+				}
+			}
+		}
+
+		// A large level is put in order faster by a pass over the users than by sorting it.
+		if (nextUsers.size() > frontier.length / SCAN_FACTOR) {
+			nextUsers.clear();
+			for (user = 0; user < frontier.length; user++) {
+				if (reached[2 * user + 1] != 0) {
+					nextUsers.add(user);
+				}
+			}
+		} else {
+			nextUsers.sort();
+		}
+	}
+
+	/**
+	 * Expands a level bottom up: every user not yet reached by all of the
+	 * sources takes the bits of the sources of the frontier users it is
+	 * actively linked to, stopping once it is reached by every source.
+	 *
+	 * @param batch
+	 *            - the bits of the sources of the batch
+	 */
+	private void bottomUpStep(long batch) {
+		long missing, found;
+
+		for (int user = 0; user < frontier.length; user++) {
+			missing = batch & ~reached[2 * user];
+
+			for (int position = 0; missing != 0 && position < graph.degree(user); position++) {
+				found = frontier[graph.neighbor(user, position)] & missing;
+
+				if (found != 0 && graph.isActive(user, position)) {
+					reached[2 * user + 1] |= found;
+					missing &= ~found;
+				}
+			}
+
+			if (reached[2 * user + 1] != 0) {
+				reached[2 * user] |= reached[2 * user + 1];
+				nextUsers.add(user);
+			}
+		}
+	}
+
+	/**
+	 * Adds the users of the next frontier, which are in order of ordinal, to
+	 * the members of the sources that reached them, and makes the next
+	 * frontier the frontier.
+	 *
+	 * @param members
+	 *            - the lists of the members of each source of the batch
+	 * @param distanceStarts
+	 *            - the lists of the start of the members at each distance
+	 * @return the number of edges of the users of the next frontier
+	 */
+	private long addLevel(IntList[] members, IntList[] distanceStarts) {
+		long levelBits = 0;
+		long frontierEdges = 0;
+		IntList users = frontierUsers;
+		int user;
+
+		for (int index = 0; index < frontierUsers.size(); index++) {
+			frontier[frontierUsers.get(index)] = 0;
+		}
+		for (int index = 0; index < nextUsers.size(); index++) {
+			levelBits |= reached[2 * nextUsers.get(index) + 1];
+		}
+		for (long bits = levelBits; bits != 0; bits &= bits - 1) {
+			distanceStarts[Long.numberOfTrailingZeros(bits)]
+					.add(members[Long.numberOfTrailingZeros(bits)].size());
+		}
+
+		for (int index = 0; index < nextUsers.size(); index++) {
+			user = nextUsers.get(index);
+			reachedUsers.add(user);
+			frontierEdges += graph.degree(user);
+
+			for (long bits = reached[2 * user + 1]; bits != 0; bits &= bits - 1) {
+				members[Long.numberOfTrailingZeros(bits)].add(user);
+			}
+
+			frontier[user] = reached[2 * user + 1];
+			reached[2 * user + 1] = 0;
+		}
+
+		frontierUsers = nextUsers;
+		nextUsers = users;
+		nextUsers.clear();
+		return frontierEdges;
+	}
+
+	/**
+	 * Clears the state of the batch for the next one.
+	 */
+	private void clear() {
+		for (int index = 0; index < reachedUsers.size(); index++) {
+			reached[2 * reachedUsers.get(index)] = 0;
+			reached[2 * reachedUsers.get(index) + 1] = 0;
+			frontier[reachedUsers.get(index)] = 0;
+		}
+		for (int index = 0; index < nextUsers.size(); index++) {
+			reached[2 * nextUsers.get(index)] = 0;
+			reached[2 * nextUsers.get(index) + 1] = 0;
+		}
+
+		reachedUsers.clear();
+		frontierUsers.clear();
+		nextUsers.clear();
+	}
+}
@@ -0,0 +1,220 @@
+/**
+ *
+ */
+package main;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import exceptions.UninitializedObjectException;
+
+/**
+ * Neighborhood is the set of friends of a user in a social network at a date,
+ * including the user itself at a distance of zero.
+ *
+ * The members are kept as an int array of user ordinals grouped by distance,
+ * with the ordinals of each distance sorted, and the start of each distance in
+ * a second small array. The size and the number of members at each distance
+ * are read directly, a member is found by binary search within each distance,
+ * and friends are only created as views while iterating.
+ *
+ * @author Shaun Howard
+ */
+public final class Neighborhood extends AbstractSet<Friend> {
+
+	// Ordinals of the members grouped by distance, sorted within a distance.
+	private final int[] members;
+
+	// Start of the members at each distance, followed by the size.
+	private final int[] distanceStarts;
+
+	// Users of the social network by ordinal.
+	private final List<User> users;
+
+	// Ordinals of the users of the social network by id.
+	private final Map<String, Integer> ordinals;
+
+	/**
+	 * Constructor to create a neighborhood of the given members.
+	 *
+	 * @param members
+	 *            - the ordinals of the members grouped by distance, sorted
+	 *            within a distance
+	 * @param distanceStarts
+	 *            - the start of the members at each distance, followed by the
+	 *            number of members
+	 * @param users
+	 *            - the users of the social network by ordinal
+	 * @param ordinals
+	 *            - the ordinals of the users of the social network by id
+	 */
+	Neighborhood(int[] members, int[] distanceStarts, List<User> users,
+			Map<String, Integer> ordinals) {
+		this.members = members;
+		this.distanceStarts = distanceStarts;
+		this.users = users;
+		this.ordinals = ordinals;
+	}
+
+	/**
+	 * Creates a neighborhood without any members.
+	 *
+	 * @return the empty neighborhood
+	 */
+	static Neighborhood empty() {
+		return new Neighborhood(new int[0], new int[] { 0 }, Collections.<User> emptyList(),
+				Collections.<String, Integer> emptyMap());
+	}
+
+	/**
+	 * Gets the number of members of the neighborhood.
+	 *
+	 * @return the number of members
+	 */
+	@Override
+	public int size() {
+		return members.length;
+	}
+
+	/**
+	 * Gets the greatest distance of a member of the neighborhood.
+	 *
+	 * @return the greatest distance or -1 when the neighborhood is empty
+	 */
+	public int maxDistance() {
+		return distanceStarts.length - 2;
+	}
+
+	/**
+	 * Gets the number of members at the given distance.
+	 *
+	 * @param distance
+	 *            - the distance of the members
+	 * @return the number of members at the distance
+	 */
+	public int countAt(int distance) {
+		if (distance < 0 || distance > maxDistance()) {
+			return 0;
+		}
+		return distanceStarts[distance + 1] - distanceStarts[distance];
+	}
+
+	/**
+	 * Returns whether the user of the given id is a member of the
+	 * neighborhood.
+	 *
+	 * @param id
+	 *            - the id of the user
+	 * @return whether the user is a member
+	 */
+	public boolean contains(String id) {
+		return distanceOf(id) >= 0;
+	}
+
+	/**
+	 * Gets the distance of the user of the given id in the neighborhood.
+	 *
+	 * @param id
+	 *            - the id of the user
+	 * @return the distance of the user or -1 when the user is not a member
+	 */
+	public int distanceOf(String id) {
+		Integer ordinal = ordinals.get(id);
+
+		if (ordinal == null) {
+			return -1;
+		}
+		return distanceOf(ordinal);
+	}
+
+	/**
+	 * Returns whether the given object is a friend that is a member of the
+	 * neighborhood at the same distance.
+	 *
+	 * @param object
+	 *            - the object to look for
+	 * @return whether the friend is a member
+	 */
+	@Override
+	public boolean contains(Object object) {
+		Friend friend;
+
+		if (!(object instanceof Friend)) {
+			return false;
+		}
+
+		friend = (Friend) object;
+		try {
+			return distanceOf(friend.getUser().getID()) == friend.getDistance();
+		} catch (UninitializedObjectException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Iterates over the members in order of distance, creating a friend for
+	 * each member as it is reached.
+	 *
+	 * @return the iterator over the friends in the neighborhood
+	 */
+	@Override
+	public Iterator<Friend> iterator() {
+		return new Iterator<Friend>() {
+
+			// Index of the next member.
+			private int index = 0;
+
+			// Distance of the next member.
+			private int distance = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < members.length;
+			}
+
+			@Override
+			public Friend next() {
+				Friend friend = new Friend();
+
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				while (distanceStarts[distance + 1] <= index) {
+					distance++;
+				}
+
+				friend.set(users.get(members[index++]), distance);
+				return friend;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Gets the distance of the user of the given ordinal by searching the
+	 * members at each distance.
+	 *
+	 * @param ordinal
+	 *            - the ordinal of the user
+	 * @return the distance of the user or -1 when the user is not a member
+	 */
+	private int distanceOf(int ordinal) {
+		for (int distance = 0; distance <= maxDistance(); distance++) {
+			if (Arrays.binarySearch(members, distanceStarts[distance],
+					distanceStarts[distance + 1], ordinal) >= 0) {
+				return distance;
+			}
+		}
+		return -1;
+	}
+}
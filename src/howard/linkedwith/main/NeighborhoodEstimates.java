@@ -0,0 +1,88 @@
+/**
+ *
+ */
+package main;
+
+import java.util.Map;
+
+/**
+ * Neighborhood estimates are the approximate sizes of the neighborhoods of
+ * every user of a social network within a max distance over the links active
+ * at a date, kept as a double array of the estimate of every user ordinal.
+ *
+ * An estimate counts the user itself, like the size of a neighborhood, and is
+ * within about 1.04 / sqrt(2^precision) of the exact size relative to it for
+ * the precision the estimates were made with.
+ *
+ * @author Shaun Howard
+ */
+public final class NeighborhoodEstimates {
+
+	// Estimated neighborhood size of each user by ordinal.
+	private final double[] estimates;
+
+	// Number of bits of the hash that picked a register.
+	private final int precision;
+
+	// Ordinals of the users of the social network by id.
+	private final Map<String, Integer> ordinals;
+
+	/**
+	 * Constructor to create the estimates of the given users.
+	 *
+	 * @param estimates
+	 *            - the estimated neighborhood size of each user by ordinal
+	 * @param precision
+	 *            - the number of bits of the hash that picked a register
+	 * @param ordinals
+	 *            - the ordinals of the users of the social network by id
+	 */
+	NeighborhoodEstimates(double[] estimates, int precision, Map<String, Integer> ordinals) {
+		this.estimates = estimates;
+		this.precision = precision;
+		this.ordinals = ordinals;
+	}
+
+	/**
+	 * Gets the estimated neighborhood size of the user of the given id.
+	 *
+	 * @param id
+	 *            - the id of the user
+	 * @return the estimated size of the neighborhood of the user or 0 when the
+	 *         user is not in the social network
+	 */
+	public double estimateOf(String id) {
+		Integer ordinal = ordinals.get(id);
+
+		if (ordinal == null || ordinal >= estimates.length) {
+			return 0;
+		}
+		return estimates[ordinal];
+	}
+
+	/**
+	 * Gets the sum of the estimated neighborhood sizes of every user, which is
+	 * the number of pairs of users within the max distance of each other
+	 * counting every user with itself.
+	 *
+	 * @return the estimated sum of the neighborhood sizes
+	 */
+	public double total() {
+		double total = 0;
+
+		for (double estimate : estimates) {
+			total += estimate;
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the number of bits of the hash that picked a register, which may be
+	 * less than the precision asked for to fit the counters in memory.
+	 *
+	 * @return the precision of the estimates
+	 */
+	public int precision() {
+		return precision;
+	}
+}
@@ -0,0 +1,302 @@
+/**
+ *
+ */
+package main;
+
+/**
+ * Neighborhood estimator approximates the size of the neighborhood of every
+ * user within a max distance at once, by the HyperANF scheme of merging
+ * HyperLogLog counters along the links of a graph.
+ *
+ * Every user holds a HyperLogLog counter of 2^precision registers, one byte
+ * each packed eight to a long, that starts out counting the user itself. Each
+ * iteration replaces the counter of every user with the register-wise max of
+ * its own counter and the counters of the users it is linked to, so after k
+ * iterations the counter of a user counts the users within k links of it. A
+ * counter only changes when the counter of a linked user changed in the
+ * iteration before, so only those are merged, and the iterations stop early
+ * once no counter changes. The users of an iteration are split into chunks run
+ * across the common fork join pool, each writing only the counters of its own
+ * users.
+ *
+ * The counters take 2^precision bytes for each user twice over, and the
+ * relative standard error of an estimate is about 1.04 / sqrt(2^precision).
+ *
+ * @author Shaun Howard
+ */
+final class NeighborhoodEstimator {
+
+	// Least number of bits of the hash that pick a register.
+	static final int MIN_PRECISION = 4;
+
+	// Greatest number of bits of the hash that pick a register.
+	static final int MAX_PRECISION = 16;
+
+	// Number of users merged by one task.
+	private static final int CHUNK_USERS = 4096;
+
+	// Number of registers packed into a long.
+	private static final int REGISTERS_PER_WORD = 8;
+
+	// High bit of every register packed into a long.
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	// The graph of the users at the date of the estimate.
+	private final ActiveGraph graph;
+
+	// Number of registers of each counter.
+	private final int registerCount;
+
+	// Number of longs the registers of each counter are packed into.
+	private final int wordCount;
+
+	// Registers of the counters of the users, one counter after another.
+	private long[] counters;
+
+	// Registers of the counters of the users being merged.
+	private long[] nextCounters;
+
+	// Whether the counter of each user changed in the last iteration.
+	private boolean[] changed;
+
+	// Whether the counter of each user changed in the iteration being merged.
+	private boolean[] nextChanged;
+
+	/**
+	 * Constructor to create an estimator over the given graph, with counters
+	 * that each count only their own user.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the estimate
+	 * @param precision
+	 *            - the number of bits of the hash that pick a register, from
+	 *            MIN_PRECISION to MAX_PRECISION
+	 */
+	NeighborhoodEstimator(ActiveGraph graph, int precision) {
+		long hash;
+		int register;
+
+		this.graph = graph;
+		this.registerCount = 1 << precision;
+		this.wordCount = registerCount / REGISTERS_PER_WORD;
+		this.counters = new long[graph.userCount() * wordCount];
+		this.nextCounters = new long[counters.length];
+		this.changed = new boolean[graph.userCount()];
+		this.nextChanged = new boolean[graph.userCount()];
+
+		// The top bits of the hash pick the register, the rest give its rank.
+		for (int user = 0; user < graph.userCount(); user++) {
+			hash = mix(user);
+			register = (int) (hash >>> (64 - precision));
+			counters[user * wordCount + register / REGISTERS_PER_WORD] =
+					(long) Math.min(Long.numberOfLeadingZeros(hash << precision) + 1, 64 - precision + 1)
+					<< (8 * (register % REGISTERS_PER_WORD));
+			changed[user] = true;
+		}
+	}
+
+	/**
+	 * Fits a precision within the supported range and lowers it until the
+	 * counters of every user fit in one array.
+	 *
+	 * @param userCount
+	 *            - the number of users
+	 * @param precision
+	 *            - the number of bits of the hash that pick a register
+	 * @return the precision to use
+	 */
+	static int fitPrecision(int userCount, int precision) {
+		precision = Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+
+		while (precision > MIN_PRECISION
+				&& ((long) userCount << precision) / REGISTERS_PER_WORD > Integer.MAX_VALUE - 8) {
+			precision--;
+		}
+		return precision;
+	}
+
+	/**
+	 * Merges the counters along the links until they count the users within
+	 * the given max distance or no counter changes.
+	 *
+	 * @param distance_max
+	 *            - the greatest distance to count users at
+	 */
+	void iterate(int distance_max) {
+		int chunks = (graph.userCount() + CHUNK_USERS - 1) / CHUNK_USERS;
+		final boolean[] chunkChanged = new boolean[chunks];
+		boolean anyChanged = true;
+		long[] counterSwap;
+		boolean[] changedSwap;
+
+		for (int distance = 0; distance < distance_max && anyChanged; distance++) {
+			new ChunkedTask() {
+				@Override
+				void runChunk(int chunk) {
+					int end = Math.min(graph.userCount(), (chunk + 1) * CHUNK_USERS);
+					boolean any = false;
+
+					for (int user = chunk * CHUNK_USERS; user < end; user++) {
+						any |= mergeUser(user);
+					}
+					chunkChanged[chunk] = any;
+				}
+			}.invoke(chunks);
+
+			anyChanged = false;
+			for (boolean chunkChange : chunkChanged) {
+				anyChanged |= chunkChange;
+			}
+
+			counterSwap = counters;
+			counters = nextCounters;
+			nextCounters = counterSwap;
+			changedSwap = changed;
+			changed = nextChanged;
+			nextChanged = changedSwap;
+		}
+	}
+
+	/**
+	 * Estimates the number of users counted by the counter of every user.
+	 *
+	 * @return the estimate of each user by ordinal
+	 */
+	double[] estimates() {
+		final double[] estimates = new double[graph.userCount()];
+		int chunks = (estimates.length + CHUNK_USERS - 1) / CHUNK_USERS;
+
+		new ChunkedTask() {
+			@Override
+			void runChunk(int chunk) {
+				int end = Math.min(estimates.length, (chunk + 1) * CHUNK_USERS);
+
+				for (int user = chunk * CHUNK_USERS; user < end; user++) {
+					estimates[user] = estimate(user);
+				}
+			}
+		}.invoke(chunks);
+
+		return estimates;
+	}
+
+	/**
+	 * Merges the counter of a user with the counters of the linked users that
+	 * changed in the last iteration into the next counters, taking the max of
+	 * the eight registers packed into a long at once.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return whether the counter of the user changed
+	 */
+	private boolean mergeUser(int user) {
+		int offset = user * wordCount;
+		int linkedOffset;
+		long merged;
+		boolean userChanged = false;
+
+		System.arraycopy(counters, offset, nextCounters, offset, wordCount);
+
+		for (int position = 0; position < graph.degree(user); position++) {
+			if (!changed[graph.neighbor(user, position)] || !graph.isActive(user, position)) {
+				continue;
+			}
+
+			linkedOffset = graph.neighbor(user, position) * wordCount;
+
+			for (int word = 0; word < wordCount; word++) {
+				merged = max(nextCounters[offset + word], counters[linkedOffset + word]);
+				userChanged |= merged != nextCounters[offset + word];
+				nextCounters[offset + word] = merged;
+			}
+		}
+
+		nextChanged[user] = userChanged;
+		return userChanged;
+	}
+
+	/**
+	 * Estimates the number of users counted by the counter of a user, by the
+	 * harmonic mean of its registers with the correction for small counts.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return the estimated number of users
+	 */
+	private double estimate(int user) {
+		int offset = user * wordCount;
+		double sum = 0;
+		int zeros = 0;
+		int value;
+		double estimate;
+
+		for (int register = 0; register < registerCount; register++) {
+			value = (int) (counters[offset + register / REGISTERS_PER_WORD]
+					>>> (8 * (register % REGISTERS_PER_WORD))) & 0xFF;
+			sum += Math.scalb(1.0, -value);
+			if (value == 0) {
+				zeros++;
+			}
+		}
+
+		estimate = alpha() * registerCount * registerCount / sum;
+		if (estimate <= 2.5 * registerCount && zeros > 0) {
+			estimate = registerCount * Math.log((double) registerCount / zeros);
+		}
+		return estimate;
+	}
+
+	/**
+	 * Takes the max of every pair of registers packed into two longs. A
+	 * register never reaches its high bit, so setting the high bit of every
+	 * register of the first long before subtracting the second leaves the high
+	 * bit of a register set exactly where the first register is not less.
+	 *
+	 * @param first
+	 *            - the registers of one counter
+	 * @param second
+	 *            - the registers of the other counter
+	 * @return the max of each pair of registers
+	 */
+	private static long max(long first, long second) {
+		long notLess = (((first | HIGH_BITS) - second) & HIGH_BITS) >>> 7;
+
+		notLess *= 0xFF;
+		return (first & notLess) | (second & ~notLess);
+	}
+
+	/**
+	 * Gets the constant correcting the bias of the estimate for the number of
+	 * registers.
+	 *
+	 * @return the bias correction
+	 */
+	private double alpha() {
+		switch (registerCount) {
+		case 16:
+			return 0.673;
+		case 32:
+			return 0.697;
+		case 64:
+			return 0.709;
+		default:
+			return 0.7213 / (1 + 1.079 / registerCount);
+		}
+	}
+
+	/**
+	 * Mixes the bits of a user ordinal into a hash with the finalizer of
+	 * SplitMix64.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return the hash of the user
+	 */
+	private static long mix(int user) {
+		long hash = user + 0x9E3779B97F4A7C15L;
+
+		hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
+}
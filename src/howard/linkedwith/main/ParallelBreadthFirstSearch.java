@@ -0,0 +1,202 @@
+/**
+ *
+ */
+package main;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel breadth first search expands levels of a breadth first search
+ * across the threads of the common fork join pool.
+ *
+ * A level is split into chunks of users, each expanded by one task into its
+ * own buffer of newly reached users. Users are claimed in an atomic bitset, so
+ * each user is reached by exactly one task. The traversal scratch is only read
+ * while a level is expanded; once every task is done, the buffers are visited
+ * in the scratch on the calling thread, so the scratch ends up exactly as a
+ * sequential expansion of the level would leave it, up to the order of the
+ * users within the level.
+ *
+ * @author Shaun Howard
+ */
+final class ParallelBreadthFirstSearch {
+
+	// Smallest frontier that automatic traversals expand in parallel.
+	static final int PARALLEL_FRONTIER = 4096;
+
+	// Number of users expanded by one task.
+	private static final int CHUNK_USERS = 1024;
+
+	// The graph of the users at the date of the search.
+	private final ActiveGraph graph;
+
+	// The traversal scratch holding the reached users.
+	private final TraversalScratch scratch;
+
+	// Bitset of the users claimed by a task or reached before.
+	private final AtomicLongArray claimed;
+
+	/**
+	 * Constructor to continue the search of the given scratch in parallel,
+	 * claiming every user it already reached.
+	 *
+	 * @param graph
+	 *            - the graph of the users at the date of the search
+	 * @param scratch
+	 *            - the traversal scratch holding the reached users
+	 */
+	ParallelBreadthFirstSearch(ActiveGraph graph, TraversalScratch scratch) {
+		int user;
+
+		this.graph = graph;
+		this.scratch = scratch;
+		this.claimed = new AtomicLongArray((graph.userCount() + 63) >>> 6);
+
+		for (int index = 0; index < scratch.reached(); index++) {
+			user = scratch.reachedUser(index);
+			claimed.set(user >>> 6, claimed.get(user >>> 6) | (1L << user));
+		}
+	}
+
+	/**
+	 * Expands a level top down in parallel: every user of the frontier claims
+	 * each user it is actively linked to that was not claimed before.
+	 *
+	 * @param levelStart
+	 *            - the index of the first user of the frontier
+	 * @param levelEnd
+	 *            - the index after the last user of the frontier
+	 * @param distance
+	 *            - the distance of the users of the frontier
+	 * @return the number of edges of the users reached by the step
+	 */
+	long topDownStep(final int levelStart, final int levelEnd, int distance) {
+		int chunks = (levelEnd - levelStart + CHUNK_USERS - 1) / CHUNK_USERS;
+		final IntList[] reached = new IntList[chunks];
+
+		new ChunkedTask() {
+			@Override
+			void runChunk(int chunk) {
+				IntList found = new IntList();
+				int end = Math.min(levelEnd, levelStart + (chunk + 1) * CHUNK_USERS);
+				int user, linkedUser;
+
+				for (int index = levelStart + chunk * CHUNK_USERS; index < end; index++) {
+					user = scratch.reachedUser(index);
+
+					for (int position = 0; position < graph.degree(user); position++) {
+						linkedUser = graph.neighbor(user, position);
+
+						if (!isClaimed(linkedUser) && graph.isActive(user, position)
+								&& claim(linkedUser)) {
+							found.add(linkedUser);
+						}
+					}
+				}
+
+				reached[chunk] = found;
+			}
+		}.invoke(chunks);
+
+		return visitReached(reached, distance + 1);
+	}
+
+	/**
+	 * Expands a level bottom up in parallel: every user not yet claimed is
+	 * reached when it is actively linked to a user of the frontier at the given
+	 * distance. Each task looks at its own range of users.
+	 *
+	 * @param distance
+	 *            - the distance of the users of the frontier
+	 * @return the number of edges of the users reached by the step
+	 */
+	long bottomUpStep(final int distance) {
+		int chunks = (graph.userCount() + CHUNK_USERS - 1) / CHUNK_USERS;
+		final IntList[] reached = new IntList[chunks];
+
+		new ChunkedTask() {
+			@Override
+			void runChunk(int chunk) {
+				IntList found = new IntList();
+				int end = Math.min(graph.userCount(), (chunk + 1) * CHUNK_USERS);
+				int linkedUser;
+
+				for (int user = chunk * CHUNK_USERS; user < end; user++) {
+					if (isClaimed(user)) {
+						continue;
+					}
+
+					for (int position = 0; position < graph.degree(user); position++) {
+						linkedUser = graph.neighbor(user, position);
+
+						if (scratch.isVisited(linkedUser) && scratch.distance(linkedUser) == distance
+								&& graph.isActive(user, position)) {
+							claim(user);
+							found.add(user);
+							break;
+						}
+					}
+				}
+
+				reached[chunk] = found;
+			}
+		}.invoke(chunks);
+
+		return visitReached(reached, distance + 1);
+	}
+
+	/**
+	 * Returns whether the given user was claimed.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return whether the user was claimed
+	 */
+	private boolean isClaimed(int user) {
+		return (claimed.get(user >>> 6) & (1L << user)) != 0;
+	}
+
+	/**
+	 * Claims the given user unless another task claimed it first.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return whether the user was claimed by this call
+	 */
+	private boolean claim(int user) {
+		int word = user >>> 6;
+		long bit = 1L << user;
+		long bits;
+
+		do {
+			bits = claimed.get(word);
+			if ((bits & bit) != 0) {
+				return false;
+			}
+		} while (!claimed.compareAndSet(word, bits, bits | bit));
+
+		return true;
+	}
+
+	/**
+	 * Visits the users reached by the tasks of a level in the scratch.
+	 *
+	 * @param reached
+	 *            - the users reached by each task
+	 * @param distance
+	 *            - the distance of the reached users
+	 * @return the number of edges of the reached users
+	 */
+	private long visitReached(IntList[] reached, int distance) {
+		long reachedEdges = 0;
+
+		for (IntList found : reached) {
+			for (int index = 0; index < found.size(); index++) {
+				scratch.visit(found.get(index), distance);
+				reachedEdges += graph.degree(found.get(index));
+			}
+		}
+
+		return reachedEdges;
+	}
+}
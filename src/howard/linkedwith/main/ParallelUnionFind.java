@@ -0,0 +1,180 @@
+/**
+ *
+ */
+package main;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Parallel union find merges the users of many links into connected
+ * components across the threads of the common fork join pool without locks.
+ *
+ * Every user points at a parent, and a root points at itself. Two components
+ * are merged by a compare and set that points the root with the greater
+ * ordinal at the other root, which only succeeds while it is still a root, so
+ * a merge racing with another one is retried from the new roots. Roots only
+ * ever point at smaller ordinals, so no cycle can form. Finding a root halves
+ * the path it walks with compare and sets as well.
+ *
+ * @author Shaun Howard
+ */
+final class ParallelUnionFind {
+
+	// Number of links merged by one task.
+	private static final int CHUNK_LINKS = 16384;
+
+	// Number of users labeled by one task.
+	private static final int CHUNK_USERS = 16384;
+
+	// Parent of each user, itself for a root.
+	private final AtomicIntegerArray parents;
+
+	/**
+	 * Constructor to create a union find where every user is its own
+	 * component.
+	 *
+	 * @param userCount
+	 *            - the number of users
+	 */
+	ParallelUnionFind(int userCount) {
+		this.parents = new AtomicIntegerArray(userCount);
+
+		for (int user = 0; user < userCount; user++) {
+			parents.set(user, user);
+		}
+	}
+
+	/**
+	 * Merges the users of every given link in parallel.
+	 *
+	 * @param linkTable
+	 *            - the table of the links of the social network
+	 * @param links
+	 *            - the indices of the links to merge the users of
+	 */
+	void unionLinks(final LinkTable linkTable, final IntList links) {
+		int chunks = (links.size() + CHUNK_LINKS - 1) / CHUNK_LINKS;
+
+		new ChunkedTask() {
+			@Override
+			void runChunk(int chunk) {
+				int end = Math.min(links.size(), (chunk + 1) * CHUNK_LINKS);
+				long key;
+
+				for (int index = chunk * CHUNK_LINKS; index < end; index++) {
+					key = linkTable.key(links.get(index));
+					union(LinkTable.firstOf(key), LinkTable.secondOf(key));
+				}
+			}
+		}.invoke(chunks);
+	}
+
+	/**
+	 * Creates the components of the users, numbered in order of the smallest
+	 * ordinal of each component.
+	 *
+	 * @param users
+	 *            - the users of the social network by ordinal
+	 * @param ordinals
+	 *            - the ordinals of the users of the social network by id
+	 * @return the components of the users
+	 */
+	Components components(List<User> users, Map<String, Integer> ordinals) {
+		final int[] componentOf = new int[parents.length()];
+		int chunks = (componentOf.length + CHUNK_USERS - 1) / CHUNK_USERS;
+		IntList firstUsers = new IntList();
+
+		// Find the root of every user in parallel.
+		new ChunkedTask() {
+			@Override
+			void runChunk(int chunk) {
+				int end = Math.min(componentOf.length, (chunk + 1) * CHUNK_USERS);
+
+				for (int user = chunk * CHUNK_USERS; user < end; user++) {
+					componentOf[user] = find(user);
+				}
+			}
+		}.invoke(chunks);
+
+		/*
+		 * Every root is the smallest ordinal of its component, so it is
+		 * numbered before any other user of the component points at it.
+		 */
+		for (int user = 0; user < componentOf.length; user++) {
+			if (componentOf[user] == user) {
+				componentOf[user] = firstUsers.size();
+				firstUsers.add(user);
+			} else {
+				componentOf[user] = componentOf[componentOf[user]];
+			}
+		}
+
+		return new Components(componentOf, countSizes(componentOf, firstUsers.size()),
+				firstUsers.toArray(), users, ordinals);
+	}
+
+	/**
+	 * Counts the users of each component.
+	 *
+	 * @param componentOf
+	 *            - the component of each user
+	 * @param count
+	 *            - the number of components
+	 * @return the number of users in each component
+	 */
+	private static int[] countSizes(int[] componentOf, int count) {
+		int[] sizes = new int[count];
+
+		for (int component : componentOf) {
+			sizes[component]++;
+		}
+		return sizes;
+	}
+
+	/**
+	 * Merges the components of the given users.
+	 *
+	 * @param first
+	 *            - the ordinal of one user
+	 * @param second
+	 *            - the ordinal of the other user
+	 */
+	private void union(int first, int second) {
+		int firstRoot, secondRoot;
+
+		do {
+			firstRoot = find(first);
+			secondRoot = find(second);
+
+			if (firstRoot == secondRoot) {
+				return;
+			}
+		} while (!parents.compareAndSet(Math.max(firstRoot, secondRoot),
+				Math.max(firstRoot, secondRoot), Math.min(firstRoot, secondRoot)));
+	}
+
+	/**
+	 * Finds the root of the component of the given user, pointing every other
+	 * user on the way at its grandparent.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return the root of the component
+	 */
+	private int find(int user) {
+		int parent, grandparent;
+
+		while ((parent = parents.get(user)) != user) {
+			grandparent = parents.get(parent);
+
+			if (grandparent != parent) {
+				parents.compareAndSet(user, parent, grandparent);
+			}
+			user = grandparent;
+		}
+
+		return user;
+	}
+}
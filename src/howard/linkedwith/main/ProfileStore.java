@@ -0,0 +1,237 @@
+/**
+ *
+ */
+package main;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Profile store holds the profile fields of the users of a social network in
+ * columns indexed by user ordinal.
+ *
+ * Names are dictionary encoded: every distinct name is kept once and each
+ * name column holds only the code of the name of each user. Emails and phone
+ * numbers are kept as UTF-8 bytes packed into one byte array per column. A
+ * missing field is stored as zero, so codes and lengths are kept one above
+ * their values.
+ *
+ * @author Shaun Howard
+ */
+class ProfileStore {
+
+	// Name column of the first names.
+	static final int FIRST_NAME = 0;
+
+	// Name column of the middle names.
+	static final int MIDDLE_NAME = 1;
+
+	// Name column of the last names.
+	static final int LAST_NAME = 2;
+
+	// Text column of the emails.
+	static final int EMAIL = 0;
+
+	// Text column of the phone numbers.
+	static final int PHONE = 1;
+
+	// Initial number of users the columns have room for.
+	private static final int INITIAL_CAPACITY = 16;
+
+	// Codes of the distinct names.
+	private final Map<String, Integer> nameCodes;
+
+	// Distinct names by code.
+	private final List<String> names;
+
+	// Code of the name of each user plus one, by name column and ordinal.
+	private final int[][] nameColumns;
+
+	// UTF-8 text of each user, by text column.
+	private final TextColumn[] textColumns;
+
+	/**
+	 * Constructor to create an empty profile store.
+	 */
+	ProfileStore() {
+		this.nameCodes = new HashMap<>();
+		this.names = new ArrayList<>();
+		this.nameColumns = new int[3][INITIAL_CAPACITY];
+		this.textColumns = new TextColumn[] { new TextColumn(), new TextColumn() };
+	}
+
+	/**
+	 * Gets the name of a user in the given name column.
+	 *
+	 * @param column
+	 *            - the name column
+	 * @param ordinal
+	 *            - the ordinal of the user
+	 * @return the name of the user or null when it is not set
+	 */
+	String name(int column, int ordinal) {
+		int[] codes = nameColumns[column];
+
+		if (ordinal >= codes.length || codes[ordinal] == 0) {
+			return null;
+		}
+		return names.get(codes[ordinal] - 1);
+	}
+
+	/**
+	 * Sets the name of a user in the given name column, adding the name to the
+	 * dictionary when it is new.
+	 *
+	 * @param column
+	 *            - the name column
+	 * @param ordinal
+	 *            - the ordinal of the user
+	 * @param name
+	 *            - the name to set, or null to clear it
+	 */
+	void setName(int column, int ordinal, String name) {
+		Integer code = null;
+
+		if (name != null) {
+			code = nameCodes.get(name);
+			if (code == null) {
+				code = names.size();
+				nameCodes.put(name, code);
+				names.add(name);
+			}
+		}
+
+		if (ordinal >= nameColumns[column].length) {
+			nameColumns[column] = Arrays.copyOf(nameColumns[column],
+					Math.max(ordinal + 1, nameColumns[column].length * 2));
+		}
+		nameColumns[column][ordinal] = code == null ? 0 : code + 1;
+	}
+
+	/**
+	 * Gets the text of a user in the given text column.
+	 *
+	 * @param column
+	 *            - the text column
+	 * @param ordinal
+	 *            - the ordinal of the user
+	 * @return the text of the user or null when it is not set
+	 */
+	String text(int column, int ordinal) {
+		return textColumns[column].get(ordinal);
+	}
+
+	/**
+	 * Sets the text of a user in the given text column.
+	 *
+	 * @param column
+	 *            - the text column
+	 * @param ordinal
+	 *            - the ordinal of the user
+	 * @param text
+	 *            - the text to set, or null to clear it
+	 */
+	void setText(int column, int ordinal, String text) {
+		textColumns[column].set(ordinal, text);
+	}
+
+	/**
+	 * Text column packs the UTF-8 bytes of the text of every user into one
+	 * byte array. Text that no longer fits where it was is appended, and the
+	 * array is repacked once more than half of it is unused.
+	 */
+	private static final class TextColumn {
+
+		// UTF-8 bytes of the text of the users.
+		private byte[] bytes;
+
+		// Number of bytes in use, including replaced text.
+		private int used;
+
+		// Number of bytes of replaced text.
+		private int unused;
+
+		// Start of the text of each user in the bytes.
+		private int[] starts;
+
+		// Length of the text of each user plus one, zero when not set.
+		private int[] lengths;
+
+		TextColumn() {
+			this.bytes = new byte[INITIAL_CAPACITY * 8];
+			this.used = 0;
+			this.unused = 0;
+			this.starts = new int[INITIAL_CAPACITY];
+			this.lengths = new int[INITIAL_CAPACITY];
+		}
+
+		String get(int ordinal) {
+			if (ordinal >= lengths.length || lengths[ordinal] == 0) {
+				return null;
+			}
+			return new String(bytes, starts[ordinal], lengths[ordinal] - 1,
+					StandardCharsets.UTF_8);
+		}
+
+		void set(int ordinal, String text) {
+			byte[] encoded = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+			int previous;
+
+			if (ordinal >= lengths.length) {
+				starts = Arrays.copyOf(starts, Math.max(ordinal + 1, starts.length * 2));
+				lengths = Arrays.copyOf(lengths, starts.length);
+			}
+
+			previous = Math.max(0, lengths[ordinal] - 1);
+			if (encoded == null) {
+				unused += previous;
+				lengths[ordinal] = 0;
+				return;
+			}
+
+			// Overwrite the previous text in place when the new text fits.
+			if (lengths[ordinal] != 0 && encoded.length <= previous) {
+				System.arraycopy(encoded, 0, bytes, starts[ordinal], encoded.length);
+				unused += previous - encoded.length;
+				lengths[ordinal] = encoded.length + 1;
+				return;
+			}
+
+			unused += previous;
+			lengths[ordinal] = 0;
+			if (unused > used / 2) {
+				repack();
+			}
+			if (used + encoded.length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(used + encoded.length, bytes.length * 2));
+			}
+
+			System.arraycopy(encoded, 0, bytes, used, encoded.length);
+			starts[ordinal] = used;
+			lengths[ordinal] = encoded.length + 1;
+			used += encoded.length;
+		}
+
+		private void repack() {
+			byte[] packed = new byte[Math.max(INITIAL_CAPACITY, used - unused) * 2];
+			int position = 0;
+
+			for (int ordinal = 0; ordinal < lengths.length; ordinal++) {
+				if (lengths[ordinal] != 0) {
+					System.arraycopy(bytes, starts[ordinal], packed, position,
+							lengths[ordinal] - 1);
+					starts[ordinal] = position;
+					position += lengths[ordinal] - 1;
+				}
+			}
+
+			bytes = packed;
+			used = position;
+			unused = 0;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ *
+ */
+package main;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Snapshot cache keeps the most recently used graph snapshots of a social
+ * network within a memory budget, evicting the least recently used snapshots
+ * first.
+ *
+ * Snapshots are keyed by the rank of their date on the event timeline, since
+ * every date between two consecutive events has the same active links.
+ *
+ * @author Shaun Howard
+ */
+class SnapshotCache {
+
+	// Snapshots by timeline rank, in order of least recent use.
+	private final LinkedHashMap<Integer, GraphSnapshot> snapshots;
+
+	// The estimated bytes of all the cached snapshots.
+	private long usedBytes;
+
+	// The most bytes the cached snapshots may occupy.
+	private long budgetBytes;
+
+	/**
+	 * Constructor to create an empty cache with the given memory budget.
+	 *
+	 * @param budgetBytes
+	 *            - the most bytes the cached snapshots may occupy
+	 */
+	SnapshotCache(long budgetBytes) {
+		this.snapshots = new LinkedHashMap<>(16, 0.75f, true);
+		this.usedBytes = 0;
+		this.budgetBytes = budgetBytes;
+	}
+
+	/**
+	 * Gets the snapshot cached for the given timeline rank, marking it as
+	 * recently used.
+	 *
+	 * @param rank
+	 *            - the rank of the date on the event timeline
+	 * @return the cached snapshot or null when none is cached
+	 */
+	GraphSnapshot get(int rank) {
+		return snapshots.get(rank);
+	}
+
+	/**
+	 * Caches the snapshot for the given timeline rank and evicts the least
+	 * recently used snapshots until the cache is within its budget. A snapshot
+	 * larger than the whole budget is not cached.
+	 *
+	 * @param rank
+	 *            - the rank of the date on the event timeline
+	 * @param snapshot
+	 *            - the snapshot to cache
+	 */
+	void put(int rank, GraphSnapshot snapshot) {
+		GraphSnapshot replaced;
+
+		if (snapshot.estimatedBytes() > budgetBytes) {
+			return;
+		}
+
+		replaced = snapshots.put(rank, snapshot);
+		usedBytes += snapshot.estimatedBytes();
+		if (replaced != null) {
+			usedBytes -= replaced.estimatedBytes();
+		}
+
+		evictToBudget();
+	}
+
+	/**
+	 * Sets the memory budget of the cache, evicting snapshots when the cache
+	 * no longer fits.
+	 *
+	 * @param budgetBytes
+	 *            - the most bytes the cached snapshots may occupy
+	 */
+	void setBudget(long budgetBytes) {
+		this.budgetBytes = budgetBytes;
+		evictToBudget();
+	}
+
+	/**
+	 * Removes every snapshot from the cache, which is needed whenever the links
+	 * of the social network change.
+	 */
+	void clear() {
+		snapshots.clear();
+		usedBytes = 0;
+	}
+
+	/**
+	 * Gets the estimated bytes of all the cached snapshots.
+	 *
+	 * @return the bytes used by the cache
+	 */
+	long usedBytes() {
+		return this.usedBytes;
+	}
+
+	/**
+	 * Evicts the least recently used snapshots until the cache is within its
+	 * budget.
+	 */
+	private void evictToBudget() {
+		Iterator<Map.Entry<Integer, GraphSnapshot>> iter = snapshots.entrySet().iterator();
+
+		while (usedBytes > budgetBytes && iter.hasNext()) {
+			usedBytes -= iter.next().getValue().estimatedBytes();
+			iter.remove();
+		}
+	}
+}
@@ -3,6 +3,8 @@
  */
 package main;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 import exceptions.UninitializedObjectException;
@@ -18,23 +20,140 @@ public class SocialNetwork {
 	// Set of users for the social network.
 	Set<User> userSet;
 
-	// Map of links between sets of users in the social network.
-	Map<Set<User>, Link> userLinks;
+	// Ordinals of the users in the social network by their unique ids.
+	Map<String, Integer> userOrdinals;
+
+	// Users of the social network in the order of their ordinals.
+	List<User> usersByOrdinal;
+
+	// Profile fields of the users in columns by their ordinals.
+	ProfileStore userProfiles;
+
+	// Table of links between pairs of users in the social network.
+	LinkTable userLinks;
+
+	// Adjacency of the users in the social network by their ordinals.
+	UserGraph userGraph;
 
     // Table of the neighborhood trends for each unique user id.
-    Hashtable<String, Map<Date, Integer>> neighborhoodTrends;
+    Hashtable<String, NavigableMap<Date, Integer>> neighborhoodTrends;
+
+    // Timeline of the instants at which links in this social network changed.
+    EventTimeline eventTimeline;
+
+    // Index of the intervals of link activity, null until built after a change.
+    IntervalIndex activityIndex;
+
+    // Cache of the recently used snapshots of the active links at a date.
+    SnapshotCache snapshotCache;
+
+    // Default memory budget of the snapshot cache in bytes.
+    private static final long DEFAULT_SNAPSHOT_BUDGET = 64L * 1024 * 1024;
 
-    // Set of event dates for the links in this social network.
-    Set<Date> eventDates;
+    // Number of users ranked by one task of a trending leaderboard.
+    private static final int TRENDING_CHUNK_USERS = 65536;
 
 	/**
-	 * Constructor to create a social network without any users.
+	 * Constructor to create a social network without any users that keeps its
+	 * adjacency and link timelines on the heap.
 	 */
 	public SocialNetwork() {
+		this(StorageMode.HEAP);
+	}
+
+	/**
+	 * Constructor to create a social network without any users that keeps its
+	 * compacted adjacency, link table and sealed link timelines in the given
+	 * storage mode.
+	 *
+	 * @param mode
+	 *            - the storage mode of the adjacency and link timelines
+	 *
+	 * @throws NullPointerException
+	 *             - thrown when input is null
+	 */
+	public SocialNetwork(StorageMode mode) throws NullPointerException {
+		LinkedWithUtilities.throwExceptionWhenNull(mode);
+
 		this.userSet = new HashSet<>();
-		this.userLinks = new HashMap<>();
+		this.userOrdinals = new HashMap<>();
+		this.usersByOrdinal = new ArrayList<>();
+		this.userProfiles = new ProfileStore();
+		this.userLinks = new LinkTable(mode, usersByOrdinal);
+		this.userGraph = new UserGraph(mode);
+        this.neighborhoodTrends = new Hashtable<>();
+        this.eventTimeline = new EventTimeline();
+        this.snapshotCache = new SnapshotCache(DEFAULT_SNAPSHOT_BUDGET);
+	}
+
+	/**
+	 * Constructor to create an off heap social network of the given users
+	 * over a link table, adjacency and event timeline read from a graph file.
+	 *
+	 * @param users
+	 *            - the users of the social network by ordinal
+	 * @param userLinks
+	 *            - the table of links between the users
+	 * @param userGraph
+	 *            - the adjacency of the users
+	 * @param eventTimeline
+	 *            - the timeline of link changes
+	 */
+	SocialNetwork(List<User> users, LinkTable userLinks, UserGraph userGraph,
+			EventTimeline eventTimeline) {
+		this.userSet = new HashSet<>(users);
+		this.userOrdinals = new HashMap<>();
+		this.usersByOrdinal = new ArrayList<>(users);
+		this.userProfiles = new ProfileStore();
+		this.userLinks = userLinks;
+		this.userGraph = userGraph;
         this.neighborhoodTrends = new Hashtable<>();
-        this.eventDates = new HashSet<>();
+        this.eventTimeline = eventTimeline;
+        this.snapshotCache = new SnapshotCache(DEFAULT_SNAPSHOT_BUDGET);
+
+		for (int ordinal = 0; ordinal < users.size(); ordinal++) {
+			userOrdinals.put(users.get(ordinal).getID(), ordinal);
+			users.get(ordinal).attach(userProfiles, ordinal);
+		}
+	}
+
+	/**
+	 * Opens the social network written to the given graph file. The adjacency,
+	 * links and timelines are mapped from the file and queried in place, so
+	 * opening does not replay the history of the social network. Changes made
+	 * afterwards are not written to the file until it is saved again.
+	 *
+	 * @param file
+	 *            - the graph file to open
+	 * @return the social network in the file
+	 *
+	 * @throws NullPointerException
+	 *             - thrown when input is null
+	 * @throws IOException
+	 *             - thrown when the file cannot be read or is not a graph file
+	 */
+	public static SocialNetwork open(File file) throws NullPointerException, IOException {
+		LinkedWithUtilities.throwExceptionWhenNull(file);
+
+		return GraphFile.open(file);
+	}
+
+	/**
+	 * Saves the social network to the given graph file, replacing its contents.
+	 * The social network is compacted first.
+	 *
+	 * @param file
+	 *            - the graph file to save to
+	 *
+	 * @throws NullPointerException
+	 *             - thrown when input is null
+	 * @throws IOException
+	 *             - thrown when the file cannot be written
+	 */
+	public void save(File file) throws NullPointerException, IOException {
+		LinkedWithUtilities.throwExceptionWhenNull(file);
+
+		GraphFile.write(this, file);
 	}
 
 	/**
@@ -52,13 +171,25 @@ public class SocialNetwork {
 	 *             - thrown when input is null
 	 */
 	public boolean addUser(User user) throws NullPointerException {
+		int ordinal;
 
 		LinkedWithUtilities.throwExceptionWhenNull(user);
 
 		// Check if the user is valid and exists and
 		// if the set of users does not contain the input user.
-		if (user.isValid() && !userSet.contains(user)) {
+		if (user.isValid() && !userOrdinals.containsKey(user.getID())) {
 			userSet.add(user);
+
+			// Intern the user under the next dense ordinal.
+			ordinal = userGraph.addUser();
+			userOrdinals.put(user.getID(), ordinal);
+			usersByOrdinal.add(user);
+
+			// Keep the profile of the user in the columns of the network.
+			user.attach(userProfiles, ordinal);
+
+			// Cached snapshots do not cover the new user.
+			snapshotCache.clear();
 			return true;
 		}
 
@@ -87,19 +218,10 @@ public class SocialNetwork {
 	 *             - thrown when input is null
 	 */
 	public boolean isMember(String id) throws NullPointerException {
-		Iterator<User> iter = userSet.iterator();
-
 		LinkedWithUtilities.throwExceptionWhenNull(id);
 
-		// Check the set of users for the given user id.
-		while (iter.hasNext()) {
-			if (iter.next().toString().equals(id)) {
-				return true;
-			}
-		}
-
-		// Otherwise user is not a member of this social network.
-		return false;
+		// Check the ordinals of users for the given user id.
+		return userOrdinals.containsKey(id);
 	}
 
 	/**
@@ -116,22 +238,55 @@ public class SocialNetwork {
 	 *             - thrown when input is null
 	 */
 	public User getUser(String id) throws NullPointerException {
-		Iterator<User> iter = userSet.iterator();
+		LinkedWithUtilities.throwExceptionWhenNull(id);
+
+		// Find the input user's ordinal, null when user does not exist.
+		return getUserByOrdinal(userOrdinals.get(id));
+	}
+
+	/**
+	 * Gets the user with the given ordinal or null if the ordinal is null.
+	 * 
+	 * @param ordinal
+	 *            - the ordinal of the user in the social network
+	 * 
+	 * @return the user with the given ordinal or null when the ordinal is null
+	 */
+	private User getUserByOrdinal(Integer ordinal) {
+		if (ordinal == null) {
+			return null;
+		}
+		return usersByOrdinal.get(ordinal);
+	}
+
+	/**
+	 * Gets the users of the given unique ids that are members of the social
+	 * network. Ids that do not belong to a member are skipped.
+	 * 
+	 * @param ids
+	 *            - the unique ids to find in the social network
+	 * 
+	 * @return the set of members with the given unique ids
+	 * 
+	 * @throws NullPointerException
+	 *             - thrown when input is null
+	 */
+	public Set<User> getUsers(Collection<String> ids) throws NullPointerException {
+		Set<User> users = new HashSet<>();
 		User user;
 
-		LinkedWithUtilities.throwExceptionWhenNull(id);
+		LinkedWithUtilities.throwExceptionWhenNull(ids);
 
-		// Find the input user's id and return the user if exists.
-		while (iter.hasNext()) {
-			user = iter.next();
+		// Look up each user id in the index of users.
+		for (String id : ids) {
+			user = getUserByOrdinal(userOrdinals.get(id));
 
-			if (user.toString().equals(id)) {
-				return user;
+			if (user != null) {
+				users.add(user);
 			}
 		}
 
-		// Otherwise, user does not exist in system.
-		return null;
+		return users;
 	}
 
     /**
@@ -150,7 +305,7 @@ public class SocialNetwork {
             throws UninitializedObjectException {
         Map<Date, Integer> neighborhoodTrend = new HashMap<>();
 
-        LinkedWithUtilities.setStatusForInvalidUsers(id, userSet, status);
+        LinkedWithUtilities.setStatusForInvalidUsers(id, userOrdinals, status);
 
         /*
          * Find all links to user, find events of those links,
@@ -159,7 +314,7 @@ public class SocialNetwork {
          * Then get the updated neighborhood trend of this user.
          */
         if(status.getStatus() != SocialNetworkStatus.Enum.INVALID_USERS){
-            updateNeighborhoodTrendForUser(id, status);
+            updateNeighborhoodTrendForUser(id, 0, eventTimeline.size());
             neighborhoodTrend = neighborhoodTrends.get(id);
             status.setStatus(SocialNetworkStatus.Enum.SUCCESS);
         }
@@ -167,6 +322,45 @@ public class SocialNetwork {
         return neighborhoodTrend;
     }
 
+    /**
+     * Detects the trend of the given user over the dates within the given range
+     * at which links in the social network changed, based on the size of the
+     * user's neighborhood at those dates.
+     *
+     * @param id - the id of the user to find the neighborhood trend of
+     * @param from - the first date of the range, inclusive
+     * @param to - the last date of the range, inclusive
+     * @param status - the social network status of the operation
+     * @return a map of the sizes of the input user's neighborhood
+     * at the link event dates within the range, in chronological order
+     * @throws NullPointerException - thrown when arguments are null
+     * @throws exceptions.UninitializedObjectException - thrown when a link
+     * is uninitialized
+     */
+    public SortedMap<Date, Integer> neighborhoodTrend(String id, Date from, Date to,
+            SocialNetworkStatus status) throws NullPointerException, UninitializedObjectException {
+        SortedMap<Date, Integer> neighborhoodTrend = new TreeMap<>();
+
+        LinkedWithUtilities.throwExceptionWhenNull(id, from, to, status);
+        LinkedWithUtilities.setStatusForInvalidUsers(id, userOrdinals, status);
+
+        /*
+         * Only the event dates within the range are checked, which are
+         * found by binary search of the event timeline.
+         */
+        if (status.getStatus() != SocialNetworkStatus.Enum.INVALID_USERS) {
+            updateNeighborhoodTrendForUser(id, eventTimeline.rangeStart(from.getTime()),
+                    eventTimeline.rangeEnd(to.getTime()));
+
+            if (!from.after(to)) {
+                neighborhoodTrend.putAll(neighborhoodTrends.get(id).subMap(from, true, to, true));
+            }
+            status.setStatus(SocialNetworkStatus.Enum.SUCCESS);
+        }
+
+        return neighborhoodTrend;
+    }
+
 	/**
 	 * Returns all of the users through the social network that are directly or
 	 * indirectly associated with the user of the given id as well as the
@@ -178,13 +372,13 @@ public class SocialNetwork {
 	 *            - the date to get the friends of this user
 	 * @param status
 	 *            - the social network status of the operation
-	 * @return the set of users that are friends with this user
+	 * @return the neighborhood of friends of this user
 	 * @throws NullPointerException
 	 *             - thrown when arguments are null
      * @throws exceptions.UninitializedObjectException - thrown when a link
      * is uninitialized
 	 */
-	public Set<Friend> neighborhood(String id, Date date,
+	public Neighborhood neighborhood(String id, Date date,
 			SocialNetworkStatus status) throws NullPointerException, UninitializedObjectException {
 		return neighborhood(id, date, userLinks.size(), status);
 	}
@@ -202,326 +396,751 @@ public class SocialNetwork {
 	 *            - the maximum distance of friends to get
 	 * @param status
 	 *            - the social network status of the operation
-	 * @return the set of users that are friends with this user
+	 * @return the neighborhood of friends of this user
 	 * @throws NullPointerException
 	 *             - thrown when arguments are null
      * @throws exceptions.UninitializedObjectException - thrown when a link
      * is uninitialized
 	 */
-	public Set<Friend> neighborhood(String id, Date date, int distance_max,
+	public Neighborhood neighborhood(String id, Date date, int distance_max,
 			SocialNetworkStatus status) throws NullPointerException, UninitializedObjectException {
-		LinkedWithUtilities.throwExceptionWhenNull(id, date, status);
-		LinkedWithUtilities.setStatusForInvalidUsers(id, userSet, status);
+		return neighborhood(id, date, distance_max, TraversalMode.AUTOMATIC, status);
+	}
+
+	/**
+	 * Returns all of the users actively linked through the social network at the given date
+	 * that are directly or indirectly associated with the user of the given id in the range of
+	 * the given maximum distance from the initial user, traversing the links in the given
+	 * mode. Every mode finds the same users at the same distances.
+	 * 
+	 * @param id
+	 *            - the user to get the friends of
+	 * @param date
+	 *            - the date to get the friends of this user
+	 * @param distance_max
+	 *            - the maximum distance of friends to get
+	 * @param mode
+	 *            - whether to expand the levels of the traversal in parallel
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the neighborhood of friends of this user
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 * @throws exceptions.UninitializedObjectException - thrown when a link
+	 * is uninitialized
+	 */
+	public Neighborhood neighborhood(String id, Date date, int distance_max,
+			TraversalMode mode, SocialNetworkStatus status)
+			throws NullPointerException, UninitializedObjectException {
+		LinkedWithUtilities.throwExceptionWhenNull(id, date, mode, status);
+		LinkedWithUtilities.setStatusForInvalidUsers(id, userOrdinals, status);
         LinkedWithUtilities.setStatusForNegativeDistance(distance_max, status);
-        Set<Friend> neighborhood = new HashSet<>();
+        Neighborhood neighborhood = Neighborhood.empty();
 
 		/*
 		 * Add actively linked users to the neighborhood, including the calling user.
 		 */
-		if (status.getStatus() != SocialNetworkStatus.Enum.INVALID_USERS ||
+		if (status.getStatus() != SocialNetworkStatus.Enum.INVALID_USERS &&
                 status.getStatus() != SocialNetworkStatus.Enum.INVALID_DISTANCE) {
-			neighborhood = buildNeighborhood(getUser(id), date, distance_max);
+			neighborhood = buildNeighborhood(getUser(id), activeGraph(date.getTime()),
+					distance_max, mode);
 		}
 
 		return neighborhood;
 	}
 
-    /**
-     * Updates the neighborhood trend for the given user id by checking
-     * the neighborhood size at the dates of events of links in the
-     * social network and adding them to the neighborhood trend map.
-     *
-     * @param id - the unique user id to update the trend for
-     * @param status - the status of the neighborhood update
-     */
-    private void updateNeighborhoodTrendForUser(String id, SocialNetworkStatus status)
-            throws UninitializedObjectException {
-        Map<Date, Integer> neighborhoodTrend = getNeighborhoodTrendForUser(id);
-        Set<Friend> neighborhoodAtDate;
-        int neighborhoodSizeAtDate;
+	/**
+	 * Returns the number of users actively linked through the social network at
+	 * the given date to the user of the given id within the given maximum
+	 * distance, including the user itself. The users are only counted, so no
+	 * member of the neighborhood is created.
+	 * 
+	 * @param id
+	 *            - the user to count the friends of
+	 * @param date
+	 *            - the date to count the friends of this user
+	 * @param distance_max
+	 *            - the maximum distance of friends to count
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the size of the neighborhood of this user, or 0 when the user or
+	 *         the distance is invalid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	public int neighborhoodSize(String id, Date date, int distance_max,
+			SocialNetworkStatus status) throws NullPointerException {
+		ActiveGraph graph;
+		TraversalScratch scratch;
 
-        /*
-         * Iterate through dates of events for this social network
-         * and put the neighborhood size at that date in
-         * the neighborhood trend for this user.
-         */
-        for (Date date : eventDates){
-            if (!neighborhoodTrend.containsKey(date)) {
-                neighborhoodAtDate = neighborhood(id, date, status);
-                neighborhoodSizeAtDate = neighborhoodAtDate.size();
-                neighborhoodTrend.put(date, neighborhoodSizeAtDate);
-            }
-        }
-    }
+		if (!isValidNeighborhood(id, date, distance_max, status)) {
+			return 0;
+		}
 
-    /**
-     * Gets the neighborhood trend for the given user id.
-     * If one does not exist for the given user, it will
-     * be created and put in the neighborhood trend
-     * map.
-     *
-     * @param id - the user to get the neighborhood trend of
-     * @return the neighborhood trend map for the user
-     */
-    private Map<Date, Integer> getNeighborhoodTrendForUser(String id) {
-        Map<Date, Integer> neighborhoodTrend;
+		graph = activeGraph(date.getTime());
+		scratch = TraversalScratch.acquire(graph.userCount());
+		try {
+			BreadthFirstSearch.traverse(graph, userOrdinals.get(id), distance_max,
+					TraversalMode.AUTOMATIC, scratch);
+			return scratch.reached();
+		} finally {
+			scratch.release();
+		}
+	}
 
-        if (neighborhoodTrends.containsKey(id)) {
-            neighborhoodTrend = neighborhoodTrends.get(id);
-        }else {
-            neighborhoodTrend = new HashMap<>();
-            neighborhoodTrends.put(id, neighborhoodTrend);
-        }
+	/**
+	 * Returns the number of users actively linked through the social network at
+	 * the given date to the user of the given id at each distance up to the
+	 * given maximum distance, starting with the user itself at a distance of
+	 * zero. The users are only counted, so no member of the neighborhood is
+	 * created.
+	 * 
+	 * @param id
+	 *            - the user to count the friends of
+	 * @param date
+	 *            - the date to count the friends of this user
+	 * @param distance_max
+	 *            - the maximum distance of friends to count
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the number of friends at each distance up to the greatest
+	 *         distance of a friend, or an empty array when the user or the
+	 *         distance is invalid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	public int[] neighborhoodDistanceHistogram(String id, Date date, int distance_max,
+			SocialNetworkStatus status) throws NullPointerException {
+		ActiveGraph graph;
+		TraversalScratch scratch;
+		int[] histogram;
+
+		if (!isValidNeighborhood(id, date, distance_max, status)) {
+			return new int[0];
+		}
 
-        return neighborhoodTrend;
-    }
+		graph = activeGraph(date.getTime());
+		scratch = TraversalScratch.acquire(graph.userCount());
+		try {
+			BreadthFirstSearch.traverse(graph, userOrdinals.get(id), distance_max,
+					TraversalMode.AUTOMATIC, scratch);
+
+			// Users are reached in order of distance, so the last one is the furthest.
+			histogram = new int[scratch.distance(scratch.reachedUser(scratch.reached() - 1)) + 1];
+
+			for (int index = 0; index < scratch.reached(); index++) {
+				histogram[scratch.distance(scratch.reachedUser(index))]++;
+			}
+			return histogram;
+		} finally {
+			scratch.release();
+		}
+	}
+
+	/**
+	 * Checks the arguments of a neighborhood query, setting the status when
+	 * the user or the distance is invalid.
+	 * 
+	 * @param id
+	 *            - the user to query the friends of
+	 * @param date
+	 *            - the date to query the friends of this user
+	 * @param distance_max
+	 *            - the maximum distance of friends to query
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return whether the user and the distance are valid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	private boolean isValidNeighborhood(String id, Date date, int distance_max,
+			SocialNetworkStatus status) throws NullPointerException {
+		LinkedWithUtilities.throwExceptionWhenNull(id, date, status);
+		LinkedWithUtilities.setStatusForInvalidUsers(id, userOrdinals, status);
+		LinkedWithUtilities.setStatusForNegativeDistance(distance_max, status);
+
+		return status.getStatus() != SocialNetworkStatus.Enum.INVALID_USERS
+				&& status.getStatus() != SocialNetworkStatus.Enum.INVALID_DISTANCE;
+	}
+
+	/**
+	 * Returns the neighborhoods of the users of the given ids at the given date
+	 * within the given maximum distance, traversing the links for up to 64
+	 * users at once so that every scan of a link is shared between them. Once a
+	 * batch of users shows that their neighborhoods barely overlap, the rest
+	 * are traversed one user at a time. Each neighborhood holds the same friends
+	 * as the neighborhood of its user alone.
+	 * 
+	 * @param ids
+	 *            - the ids of the users to get the friends of
+	 * @param date
+	 *            - the date to get the friends of the users
+	 * @param distance_max
+	 *            - the maximum distance of friends to get
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the neighborhood of each user by id, which is empty for invalid
+	 *         users, or no neighborhoods when the maximum distance is negative
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	public Map<String, Neighborhood> neighborhoods(Collection<String> ids, Date date,
+			int distance_max, SocialNetworkStatus status) throws NullPointerException {
+		Map<String, Neighborhood> neighborhoods = new LinkedHashMap<>();
+		List<String> sourceIds = new ArrayList<>();
+		IntList sources = new IntList();
+		ActiveGraph graph;
+		MultiSourceSearch search;
+		boolean shared = true;
+		IntList[] members = new IntList[MultiSourceSearch.BATCH_SOURCES];
+		IntList[] distanceStarts = new IntList[MultiSourceSearch.BATCH_SOURCES];
+		int[] ordinals;
+		int count;
+
+		LinkedWithUtilities.throwExceptionWhenNull(ids, date, status);
+
+		// Check the distance before the ids, so an unknown id cannot mask it.
+		if (distance_max < 0) {
+			LinkedWithUtilities.setStatusForNegativeDistance(distance_max, status);
+			return neighborhoods;
+		}
+
+		for (String id : ids) {
+			LinkedWithUtilities.throwExceptionWhenNull(id);
+			LinkedWithUtilities.setStatusForInvalidUsers(id, userOrdinals, status);
+
+			if (!userOrdinals.containsKey(id)) {
+				neighborhoods.put(id, Neighborhood.empty());
+			} else if (!neighborhoods.containsKey(id)) {
+				neighborhoods.put(id, Neighborhood.empty());
+				sourceIds.add(id);
+				sources.add(userOrdinals.get(id));
+			}
+		}
+
+		/*
+		 * Traverse the links from the valid users in batches of one user per bit.
+		 */
+		ordinals = sources.toArray();
+		graph = snapshot(date);
+		search = new MultiSourceSearch(graph);
+		for (int first = 0; first < ordinals.length; first += MultiSourceSearch.BATCH_SOURCES) {
+			count = Math.min(MultiSourceSearch.BATCH_SOURCES, ordinals.length - first);
+
+			if (!shared) {
+				for (int bit = 0; bit < count; bit++) {
+					neighborhoods.put(sourceIds.get(first + bit), buildNeighborhood(
+							usersByOrdinal.get(ordinals[first + bit]), graph, distance_max,
+							TraversalMode.AUTOMATIC));
+				}
+				continue;
+			}
+
+			for (int bit = 0; bit < count; bit++) {
+				members[bit] = new IntList();
+				distanceStarts[bit] = new IntList();
+			}
+
+			shared = search.traverse(ordinals, first, count, distance_max, members,
+					distanceStarts);
+
+			for (int bit = 0; bit < count; bit++) {
+				neighborhoods.put(sourceIds.get(first + bit), new Neighborhood(
+						members[bit].toArray(), distanceStarts[bit].toArray(), usersByOrdinal,
+						userOrdinals));
+			}
+		}
+
+		return neighborhoods;
+	}
+
+	/**
+	 * Returns the connected components of the users over the links active at
+	 * the given date, merging the users of the active links in parallel without
+	 * locks. The size of the component of a user is the size of its
+	 * neighborhood without a max distance.
+	 * 
+	 * @param date
+	 *            - the date of the links to follow
+	 * @return the components of the users at the date
+	 * @throws NullPointerException
+	 *             - thrown when input is null
+	 */
+	public Components components(Date date) throws NullPointerException {
+		IntList activeLinks = new IntList();
+		ParallelUnionFind unionFind;
+
+		LinkedWithUtilities.throwExceptionWhenNull(date);
+
+		getActivityIndex().linksActiveAt(date.getTime(), activeLinks);
+		unionFind = new ParallelUnionFind(userGraph.userCount());
+		unionFind.unionLinks(userLinks, activeLinks);
+
+		return unionFind.components(usersByOrdinal, userOrdinals);
+	}
+
+	/**
+	 * Returns the approximate sizes of the neighborhoods of every user within
+	 * the given max distance over the links active at the given date, merging
+	 * a HyperLogLog counter of every user along the active links once for each
+	 * link of distance in parallel. The counters take memory linear in the
+	 * users for any max distance, 2 x 2^precision bytes for every user since
+	 * each iteration merges into a second set of counters. The precision is
+	 * only lowered as far as keeps the counters within the index limit of one
+	 * array, so it does not guard the heap, and a high precision over many
+	 * users needs a heap large enough for the counters.
+	 *
+	 * @param date
+	 *            - the date of the links to follow
+	 * @param distance_max
+	 *            - the greatest distance to count users at
+	 * @param precision
+	 *            - the number of bits of the hash that pick a register of a
+	 *            counter, from 4 to 16, where each counter takes 2^precision
+	 *            bytes twice over and each estimate is within about 1.04 /
+	 *            sqrt(2^precision) of the size relative to it
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the estimated neighborhood sizes of the users, or no estimates
+	 *         when the max distance is invalid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	public NeighborhoodEstimates approximateNeighborhoodSizes(Date date, int distance_max,
+			int precision, SocialNetworkStatus status) throws NullPointerException {
+		NeighborhoodEstimator estimator;
+
+		LinkedWithUtilities.throwExceptionWhenNull(date, status);
+		LinkedWithUtilities.setStatusForNegativeDistance(distance_max, status);
+
+		// Report the precision the estimator would use even without estimates.
+		precision = NeighborhoodEstimator.fitPrecision(userGraph.userCount(), precision);
+
+		if (status.getStatus() == SocialNetworkStatus.Enum.INVALID_DISTANCE) {
+			return new NeighborhoodEstimates(new double[0], precision, userOrdinals);
+		}
+
+		estimator = new NeighborhoodEstimator(snapshot(date), precision);
+		estimator.iterate(distance_max);
+
+		return new NeighborhoodEstimates(estimator.estimates(), precision, userOrdinals);
+	}
+
+	/**
+	 * Returns the number of links on a shortest path between the users of the
+	 * given ids over the links active at the given date, searching from both
+	 * users at once and stopping as soon as the searches meet.
+	 * 
+	 * @param from
+	 *            - the id of one user
+	 * @param to
+	 *            - the id of the other user
+	 * @param date
+	 *            - the date of the links to follow
+	 * @param distance_max
+	 *            - the greatest distance to search to
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the distance between the users, or -1 when they are further
+	 *         apart than the max distance or either user is invalid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	public int distance(String from, String to, Date date, int distance_max,
+			SocialNetworkStatus status) throws NullPointerException {
+		LinkedWithUtilities.throwExceptionWhenNull(from, to, date, status);
+		LinkedWithUtilities.setStatusForInvalidUsers(from, userOrdinals, status);
+		LinkedWithUtilities.setStatusForInvalidUsers(to, userOrdinals, status);
+		LinkedWithUtilities.setStatusForNegativeDistance(distance_max, status);
+
+		if (status.getStatus() == SocialNetworkStatus.Enum.INVALID_USERS
+				|| status.getStatus() == SocialNetworkStatus.Enum.INVALID_DISTANCE) {
+			return BidirectionalSearch.UNREACHABLE;
+		}
+
+		return BidirectionalSearch.distance(activeGraph(date.getTime()),
+				userOrdinals.get(from), userOrdinals.get(to), distance_max);
+	}
+
+	/**
+	 * Returns the users along a shortest path of links active at the given
+	 * date between the users of the given ids, without a max distance.
+	 *
+	 * @param from
+	 *            - the id of the user the path starts at
+	 * @param to
+	 *            - the id of the user the path ends at
+	 * @param date
+	 *            - the date of the links to follow
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the users along the path from the first user to the last, or an
+	 *         empty list when there is no path or either user is invalid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	public List<User> path(String from, String to, Date date, SocialNetworkStatus status)
+			throws NullPointerException {
+		return path(from, to, date, userLinks.size(), status);
+	}
+
+	/**
+	 * Returns the users along a shortest path of links active at the given
+	 * date between the users of the given ids, searching from both users at
+	 * once and following back the users each one was reached from once the
+	 * searches meet.
+	 *
+	 * @param from
+	 *            - the id of the user the path starts at
+	 * @param to
+	 *            - the id of the user the path ends at
+	 * @param date
+	 *            - the date of the links to follow
+	 * @param distance_max
+	 *            - the greatest number of links the path may take
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the users along the path from the first user to the last, or an
+	 *         empty list when they are further apart than the max distance or
+	 *         either user is invalid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	public List<User> path(String from, String to, Date date, int distance_max,
+			SocialNetworkStatus status) throws NullPointerException {
+		List<User> path = new ArrayList<>();
+
+		LinkedWithUtilities.throwExceptionWhenNull(from, to, date, status);
+		LinkedWithUtilities.setStatusForInvalidUsers(from, userOrdinals, status);
+		LinkedWithUtilities.setStatusForInvalidUsers(to, userOrdinals, status);
+		LinkedWithUtilities.setStatusForNegativeDistance(distance_max, status);
+
+		if (status.getStatus() == SocialNetworkStatus.Enum.INVALID_USERS
+				|| status.getStatus() == SocialNetworkStatus.Enum.INVALID_DISTANCE) {
+			return path;
+		}
+
+		for (int ordinal : BidirectionalSearch.path(activeGraph(date.getTime()),
+				userOrdinals.get(from), userOrdinals.get(to), distance_max)) {
+			path.add(usersByOrdinal.get(ordinal));
+		}
+
+		return path;
+	}
+
+	/**
+	 * Returns the users linked to both users of the given ids by links active
+	 * at the given date, intersecting the rows of the two users in the
+	 * adjacency and checking the activity of each shared link, so the cost is
+	 * in proportion to the degrees of the two users.
+	 *
+	 * @param first
+	 *            - the id of one user
+	 * @param second
+	 *            - the id of the other user
+	 * @param date
+	 *            - the date of the links to follow
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the mutual friends of the users in the order they were added to
+	 *         the social network, or an empty list when either user is invalid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	public List<User> mutualFriends(String first, String second, Date date,
+			SocialNetworkStatus status) throws NullPointerException {
+		List<User> mutualFriends = new ArrayList<>();
+		IntList mutualOrdinals = new IntList();
+
+		if (!isValidMutualFriends(first, second, date, status)) {
+			return mutualFriends;
+		}
+
+		compactIfNeeded();
+		userGraph.intersectNeighbors(userOrdinals.get(first), userOrdinals.get(second),
+				userLinks, date.getTime(), mutualOrdinals);
+		for (int index = 0; index < mutualOrdinals.size(); index++) {
+			mutualFriends.add(usersByOrdinal.get(mutualOrdinals.get(index)));
+		}
+
+		return mutualFriends;
+	}
+
+	/**
+	 * Returns the number of users linked to both users of the given ids by
+	 * links active at the given date, without gathering the users themselves.
+	 *
+	 * @param first
+	 *            - the id of one user
+	 * @param second
+	 *            - the id of the other user
+	 * @param date
+	 *            - the date of the links to follow
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the number of mutual friends of the users, or 0 when either user
+	 *         is invalid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	public int mutualFriendCount(String first, String second, Date date,
+			SocialNetworkStatus status) throws NullPointerException {
+		if (!isValidMutualFriends(first, second, date, status)) {
+			return 0;
+		}
+
+		compactIfNeeded();
+		return userGraph.intersectNeighbors(userOrdinals.get(first),
+				userOrdinals.get(second), userLinks, date.getTime(), null);
+	}
+
+	/**
+	 * Returns the users two links away from the user of the given id over the
+	 * links active at the given date that share the most friends with the
+	 * user, ranked by the number of friends shared. The friends of the user
+	 * are examined from the fewest links up within a fixed budget of links, so
+	 * friends that are hubs only have an even sample of their links counted.
+	 *
+	 * @param id
+	 *            - the id of the user to recommend friends to
+	 * @param date
+	 *            - the date of the links to follow
+	 * @param count
+	 *            - the most users to recommend
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return the recommended users from the most friends shared down, with
+	 *         users added to the social network earlier ranked first among
+	 *         equal counts, or an empty list when the user is invalid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	public List<User> recommend(String id, Date date, int count, SocialNetworkStatus status)
+			throws NullPointerException {
+		List<User> recommended = new ArrayList<>();
+
+		LinkedWithUtilities.throwExceptionWhenNull(id, date, status);
+		LinkedWithUtilities.setStatusForInvalidUsers(id, userOrdinals, status);
+
+		if (status.getStatus() == SocialNetworkStatus.Enum.INVALID_USERS) {
+			return recommended;
+		}
+
+		for (int ordinal : FriendRecommender.recommend(activeGraph(date.getTime()),
+				userOrdinals.get(id), count)) {
+			recommended.add(usersByOrdinal.get(ordinal));
+		}
+
+		return recommended;
+	}
+
+	/**
+	 * Checks the arguments of a mutual friends query, setting the status when
+	 * either user is invalid.
+	 *
+	 * @param first
+	 *            - the id of one user
+	 * @param second
+	 *            - the id of the other user
+	 * @param date
+	 *            - the date of the links to follow
+	 * @param status
+	 *            - the social network status of the operation
+	 * @return whether both users are valid
+	 * @throws NullPointerException
+	 *             - thrown when arguments are null
+	 */
+	private boolean isValidMutualFriends(String first, String second, Date date,
+			SocialNetworkStatus status) throws NullPointerException {
+		LinkedWithUtilities.throwExceptionWhenNull(first, second, date, status);
+		LinkedWithUtilities.setStatusForInvalidUsers(first, userOrdinals, status);
+		LinkedWithUtilities.setStatusForInvalidUsers(second, userOrdinals, status);
+
+		return status.getStatus() != SocialNetworkStatus.Enum.INVALID_USERS;
+	}
 
     /**
-     * Gets the direct links (with distance 1) to the given user
-     * which are active at the given date.
+     * Ranks the users of the social network by how much their neighborhood
+     * grew between the given dates, and returns the given number of users
+     * that grew the most. A neighborhood without a max distance is the
+     * connected component of the user, so the components at both dates are
+     * found once for the whole network, and the users are ranked in parallel
+     * into bounded heaps that are merged at the end.
      *
-     * @param user - the user to find the direct links to
-     * @param date - the date to check for link activity on between this user
-     *             and other users associated with this user
-     * @param keySet - the key set of the map of user links for the
-     *               social network
-     * @return a list of direct links to the given user
-     * @throws exceptions.UninitializedObjectException - thrown when a link is
-     * uninitialized
+     * @param from - the date to measure growth from
+     * @param to - the date to measure growth to
+     * @param count - the most users to return
+     * @return the ids of the users that grew the most with the growth of their
+     * neighborhood sizes, from the greatest growth down, with users added to
+     * the social network earlier ranked first among equal growth
+     * @throws NullPointerException - thrown when arguments are null
      */
-    private List<Link> getActiveLinksToUser(User user, Date date, Set<Set<User>> keySet)
-            throws UninitializedObjectException {
-        List<Link> linksToUser = new ArrayList<>();
-        List<Set<User>> setsToRemove = new ArrayList<>();
-        Link linkToAdd = null;
+    public Map<String, Integer> trendingUsers(Date from, Date to, final int count)
+            throws NullPointerException {
+        Map<String, Integer> trendingUsers = new LinkedHashMap<>();
+        final Components fromComponents, toComponents;
+        final BoundedHeap[] chunkLeaders;
+        final int userCount = userGraph.userCount();
+        final int kept = Math.min(count, userCount);
+        BoundedHeap leaders;
+
+        LinkedWithUtilities.throwExceptionWhenNull(from, to);
+
+        if (count <= 0) {
+            return trendingUsers;
+        }
+
+        // No heap keeps more users than there are to rank.
+        leaders = new BoundedHeap(kept);
+
+        fromComponents = components(from);
+        toComponents = components(to);
 
         /*
-         * Gather all the links to this user by finding each set the
-         * user is in and finding the link associated with that user set in
-         * the user links map.
-         *
-         * Add the user set associated with the link to the list of sets to remove.
+         * Pack the growth of each user above its inverted ordinal, so that
+         * equal growth ranks the smaller ordinal higher.
          */
-        for (Set<User> userSet : keySet) {
-            if (userSet.contains(user)) {
-                linkToAdd = userLinks.get(userSet);
-                addActiveLinkToList(date, linkToAdd, linksToUser);
-                setsToRemove.add(userSet);
+        chunkLeaders = new BoundedHeap[(userCount + TRENDING_CHUNK_USERS - 1)
+                / TRENDING_CHUNK_USERS];
+        new ChunkedTask() {
+            @Override
+            void runChunk(int chunk) {
+                BoundedHeap heap = new BoundedHeap(Math.min(kept, TRENDING_CHUNK_USERS));
+                int end = Math.min(userCount, (chunk + 1) * TRENDING_CHUNK_USERS);
+                long growth;
+
+                for (int user = chunk * TRENDING_CHUNK_USERS; user < end; user++) {
+                    growth = toComponents.sizeOfUser(user) - fromComponents.sizeOfUser(user);
+                    heap.offer((growth << 32) | (~user & 0xFFFFFFFFL));
+                }
+                chunkLeaders[chunk] = heap;
             }
-        }
+        }.invoke(chunkLeaders.length);
 
-        /*
-         * Remove all the user sets in the list of sets to remove
-         * from the key set of the link map so
-         * they are not processed again in the neighborhood
-         * method.
-         */
-        keySet.removeAll(setsToRemove);
+        for (BoundedHeap heap : chunkLeaders) {
+            leaders.offerAll(heap);
+        }
+        for (long leader : leaders.toDescendingArray()) {
+            trendingUsers.put(usersByOrdinal.get(~(int) leader).getID(), (int) (leader >> 32));
+        }
 
-        return linksToUser;
+        return trendingUsers;
     }
 
     /**
-     * Adds an active link to the given list of links.
-     * When a link is inactive, nothing happens.
+     * Updates the neighborhood trend for the given user id with the
+     * neighborhood size at the dates of events of links in the social
+     * network within the given range of the event timeline.
      *
-     * @param date - date to check link activity on
-     * @param linkToAdd - link to add to the set if active on the given
-     *                  date
-     * @param links - set of links to add a link to
-     * @throws exceptions.UninitializedObjectException - thrown when a link is
-     * uninitialized
+     * A neighborhood without a max distance is the connected component of
+     * the user, so the sizes at every date of the range are found in one
+     * sweep over the intervals of activity of the links, unless the trend
+     * already holds every date of the range.
+     *
+     * @param id - the unique user id to update the trend for
+     * @param start - the index of the first instant of the event timeline
+     * @param end - the index after the last instant of the event timeline
      */
-    private void addActiveLinkToList(Date date, Link linkToAdd, List<Link> links)
-            throws UninitializedObjectException {
-        if (linkToAdd.isActive(date)) {
-            links.add(linkToAdd);
+    private void updateNeighborhoodTrendForUser(String id, int start, int end) {
+        NavigableMap<Date, Integer> neighborhoodTrend = getNeighborhoodTrendForUser(id);
+        ConnectivitySweep sweep;
+        int[] sizes;
+
+        if (start >= end || neighborhoodTrend.subMap(new Date(eventTimeline.instantAt(start)),
+                true, new Date(eventTimeline.instantAt(end - 1)), true).size() == end - start) {
+            return;
+        }
+
+        sweep = new ConnectivitySweep(userLinks, getActivityIndex(), eventTimeline,
+                userGraph.userCount(), start, end);
+        sizes = sweep.componentSizes(userOrdinals.get(id));
+
+        for (int index = start; index < end; index++) {
+            neighborhoodTrend.put(new Date(eventTimeline.instantAt(index)), sizes[index - start]);
         }
     }
 
     /**
-     * Gets the users directly linked (at a distance of 1) to the given
-     * user based on the given list of direct links to the user.
+     * Gets the neighborhood trend for the given user id.
+     * If one does not exist for the given user, it will
+     * be created and put in the neighborhood trend
+     * map.
      *
-     * @param user - the user to find the users closest to
-     * @param linksToUser - the direct links to the user
-     * @return the users closest to the given user
-     * @throws UninitializedObjectException - thrown when a link is
-     * uninitialized
+     * @param id - the user to get the neighborhood trend of
+     * @return the neighborhood trend map for the user
      */
-    private List<User> getLinkedUsers(User user, List<Link> linksToUser) throws UninitializedObjectException {
-        List<Set<User>> setsOfLinkedUsers = new ArrayList<>();
-        List<User> linkedUsers = new ArrayList<>();
+    private NavigableMap<Date, Integer> getNeighborhoodTrendForUser(String id) {
+        NavigableMap<Date, Integer> neighborhoodTrend;
 
-        /*
-         * For each link in the direct links to this user, add the set
-         * of users associated in the link to the list of sets of linked users.
-         */
-        for (Link link : linksToUser){
-            setsOfLinkedUsers.add(link.getUsers());
-        }
-
-        /*
-         * For each set of users associated with a link, remove this user
-         * from the set and add the other user to a list of users linked to this user.
-         */
-        for (Set<User> userSet : setsOfLinkedUsers){
-            userSet.remove(user);
-            linkedUsers.add(userSet.iterator().next());
+        if (neighborhoodTrends.containsKey(id)) {
+            neighborhoodTrend = neighborhoodTrends.get(id);
+        }else {
+            neighborhoodTrend = new TreeMap<>();
+            neighborhoodTrends.put(id, neighborhoodTrend);
         }
 
-        return linkedUsers;
+        return neighborhoodTrend;
     }
 
     /**
      * Builds the neighborhood of the given user to the extent of the max distance given
      * and based on the link activity on the given date.
      *
+     * The traversal runs over user ordinals on the traversal scratch of the
+     * current thread, switching each level between expanding the frontier top
+     * down and searching for the frontier bottom up, and the scratch is
+     * released in time proportional to the users reached.
+     *
      * @param user - the user to build the neighborhood of
-     * @param date - the date to build the neighborhood on,
-     *             which only considers active links between users
+     * @param graph - the graph of the users at the date to build the
+     *              neighborhood on, which only considers active links
      * @param distance_max - the max distance to build the neighborhood to
-     * @return the set of friends in the neighborhood
-     * @throws UninitializedObjectException - thrown when a link is uninitialized
+     * @param mode - whether to expand the levels of the traversal in parallel
+     * @return the neighborhood of the user
      */
-    private Set<Friend> buildNeighborhood(User user, Date date, int distance_max)
-            throws UninitializedObjectException {
-
-        // A copy of the key set of the user links map.
-        Set<Set<User>> keySet = new HashSet<>();
-        keySet.addAll(userLinks.keySet());
-
-        int distance = 0;
-
-        //Neighborhood to build.
-        Set<Friend> neighborhood = new HashSet<>();
-
-        //Set of users directly connected to the given user.
-        Set<User> connectedUsers = new HashSet<>();
-
-        connectUserWithNeighborhood(user, distance, neighborhood, connectedUsers);
-
-        distance++;
-
-        //Find users associated to this user and add them to the neighborhood.
-        while (!connectedUsers.isEmpty()) {
-
-            if (distance > distance_max) {
-                return neighborhood;
-            }
-
-            /*
-             * Add all the users linked to this user at the current distance
-             * and active at the current date to the neighborhood.
-             */
-            addUsersToNeighborhood(date, distance, connectedUsers, neighborhood, keySet);
-
-            distance++;
+    private Neighborhood buildNeighborhood(User user, ActiveGraph graph, int distance_max,
+                                           TraversalMode mode) {
+        TraversalScratch scratch = TraversalScratch.acquire(graph.userCount());
+
+        try {
+            BreadthFirstSearch.traverse(graph, userOrdinals.get(user.getID()), distance_max,
+                    mode, scratch);
+            return createNeighborhood(scratch);
+        } finally {
+            scratch.release();
         }
-
-        return neighborhood;
     }
 
     /**
-     * Adds the user to the neighborhood at the given distance and
-     * adds the user to the set of connected users.
+     * Creates the neighborhood of the users reached by a traversal, which were
+     * reached in order of distance, sorting the users at each distance by
+     * ordinal.
      *
-     * @param user - the user to connect with the neighborhood
-     * @param distance - the distance of the user in the neighborhood
-     * @param neighborhood - the neighborhood to add the user to
-     * @param connectedUsers - the set of connected users in the neighborhood
+     * @param scratch - the traversal scratch holding the reached users
+     * @return the neighborhood of the reached users
      */
-    private void connectUserWithNeighborhood(User user, int distance, Set<Friend> neighborhood,
-                                             Set<User> connectedUsers) {
-
-        //Add the user to the neighborhood at the given distance.
-        addUserToNeighborhood(user, neighborhood, distance);
-
-        //Add the given user to the set of connected users.
-        connectedUsers.add(user);
-    }
-
-    /**
-     * Adds all the users connected in the neighborhood at the given distance
-     * to the set of friends based on the given key set of the user links map
-     * for this social network. Only links active at the given date are
-     * considered in the neighborhood.
-     *
-     * @param date - the date of the neighborhood construction, which
-     *             only considers active links between users
-     * @param distance - the distance of the current friend search
-     * @param connectedUsers - the users connected in the neighborhood at the
-     *                       given distance from the initial user
-     * @param neighborhood - the friend set of the neighborhood for the initial
-     *                     user
-     * @param keySet - the key set of the user links map in this social network
-     * @throws UninitializedObjectException - thrown when a link is uninitialized
-     */
-    private void addUsersToNeighborhood(Date date, int distance, Set<User> connectedUsers,
-                                        Set<Friend> neighborhood, Set<Set<User>> keySet)
-            throws UninitializedObjectException {
-
-        List<Link> linksToUser;
-
-        List<User> linkedUsers;
-
-        //Set of connected users for iterating over.
-        Set<User> tempUsers = new HashSet<>();
-        tempUsers.addAll(connectedUsers);
-
-        Iterator<User> userIter = tempUsers.iterator();
-
-        User currUser;
-
-        /*
-         * Determine all the users connected at the given distance,
-         * add them to the neighborhood, and add to the set of connected
-         * users for further searching friend associations at a greater
-         * distance.
-         */
-        while(userIter.hasNext()) {
-            currUser = userIter.next();
-
-            //Find the users linked directly to the current user.
-            linksToUser = getActiveLinksToUser(currUser, date, keySet);
-            linkedUsers = getLinkedUsers(currUser, linksToUser);
-
-            /*
-             * Remove the current user from the set of connected users
-             * so they are not processed again.
-             */
-            connectedUsers.remove(currUser);
-
-            /*
-             * Connect the users associated with the current user to the
-             * neighborhood of friends.
-             */
-            if (!linkedUsers.isEmpty()) {
-                for (User linkedUser : linkedUsers) {
-                    connectUserWithNeighborhood(linkedUser, distance,
-                            neighborhood, connectedUsers);
-                }
+    private Neighborhood createNeighborhood(TraversalScratch scratch) {
+        int[] members = new int[scratch.reached()];
+        IntList distanceStarts = new IntList();
+        int distance = -1;
+
+        for (int index = 0; index < members.length; index++) {
+            members[index] = scratch.reachedUser(index);
+
+            // Start the next distance at its first reached user.
+            if (scratch.distance(members[index]) > distance) {
+                distance++;
+                distanceStarts.add(index);
             }
         }
+        distanceStarts.add(members.length);
 
-    }
+        for (distance = 0; distance < distanceStarts.size() - 1; distance++) {
+            Arrays.sort(members, distanceStarts.get(distance), distanceStarts.get(distance + 1));
+        }
 
-	/**
-	 * Adds the given user to the neighborhood as a friend at the given distance.
-	 * 
-	 * @param user
-	 *            - user to add to the neighborhood
-	 * @param neighborhood
-	 *            - the neighborhood to add the user to as a friend
-	 * @param distance
-	 *            - the distance of this friend
-	 */
-	private void addUserToNeighborhood(User user, Set<Friend> neighborhood,
-			int distance) {
-		Friend friend = new Friend();
-		friend.set(user, distance);
-		neighborhood.add(friend);
-	}
+        return new Neighborhood(members, distanceStarts.toArray(), usersByOrdinal, userOrdinals);
+    }
 
 	/**
 	 * Establish a link between the two user ids on the given date if the users
@@ -561,25 +1180,27 @@ public class SocialNetwork {
 	 */
 	private void changeLink(Set<String> ids, Date date,
 			SocialNetworkStatus status, boolean establishment) throws UninitializedObjectException {
-		Link link = new Link();
-		Set<User> users = new HashSet<User>();
+		long pair;
+		Link link;
 
 		LinkedWithUtilities.throwExceptionWhenNull(ids, date, status);
 
-		// Creates a set of users from the set of user ids.
-		users = createUserSetFromIDs(ids);
+		// Find the pair key of the two users with the input ids.
+		pair = getPairKeyFromIDs(ids);
+		link = userLinks.get(pair);
 
-		LinkedWithUtilities.setInvalidUsersStatusIfSetSizeUnequal(users, ids,
-				status);
+		// The ids must belong to exactly two members of the network.
+		if (pair == LinkTable.NO_PAIR) {
+			status.setStatus(SocialNetworkStatus.Enum.INVALID_USERS);
+		}
 
 		// The link should not already be established between these users.
-		if (userLinks.containsKey(users) && establishment &&
-                userLinks.get(users).isActive(date)) {
+		if (link != null && establishment && link.isActive(date)) {
                 status.setStatus(SocialNetworkStatus.Enum.INVALID_USERS);
 		}
 
 		if (SocialNetworkStatus.Enum.INVALID_USERS != status.getStatus()) {
-			manageLink(establishment, users, link, date, status);
+			manageLink(establishment, ids, pair, link, date, status);
 		}
 
 	}
@@ -589,26 +1210,35 @@ public class SocialNetwork {
 	 * 
 	 * @param establishment
 	 *            - whether to establish the link
-	 * @param users
-	 *            - the users in the link
+	 * @param ids
+	 *            - the ids of the users in the link
+	 * @param pair
+	 *            - the pair key of the users in the link
 	 * @param link
-	 *            - the link to change
+	 *            - the link to change or null when the users are not linked
+	 *            yet
 	 * @param date
 	 *            - date of link change
 	 * @param status
 	 *            - status of the operation
 	 */
-	private void manageLink(boolean establishment, Set<User> users, Link link,
-			Date date, SocialNetworkStatus status) {
+	private void manageLink(boolean establishment, Set<String> ids, long pair,
+			Link link, Date date, SocialNetworkStatus status) {
 
 		// If users were invalid, do nothing, otherwise establish the link.
 		if (establishment) {
 
 			/*
-			 * Set the users in the link to the created user set from input id
-			 * set.
+			 * Re-establish the existing link between these users so its
+			 * history and adjacency entries are kept, otherwise set the users
+			 * in a new link to the created user set from input id set.
 			 */
-			link.setUsers(users, status);
+			if (link != null) {
+				status.setStatus(SocialNetworkStatus.Enum.SUCCESS);
+			} else {
+				link = new Link();
+				link.setUsers(createUserSetFromIDs(ids), status);
+			}
 
 			/*
 			 * Attempt to establish a link at the given date between the input
@@ -621,24 +1251,24 @@ public class SocialNetwork {
 			}
 
 			// Put users in links map when status is successful.
-			putUsersInLinksMap(users, link, status);
+			putUsersInLinksMap(pair, link, status);
 
-            // Add this date to the set of event dates.
-            eventDates.add(date);
+            // Record the change on the event timeline.
+            recordLinkEvent(pair, date, status);
 
 		} else {
-			// Check if the user link set contains the link between input users.
-			if (userLinks.containsKey(users)) {
+			// Check if the user link table contains the link between input users.
+			if (link != null) {
 
 				// Attempt to tear down link between the given users.
 				try {
-					userLinks.get(users).tearDown(date, status);
+					link.tearDown(date, status);
 				} catch (UninitializedObjectException uoe) {
 					assert false : "Unable to tear down link.";
 				}
 
-                // Add this date to the set of event dates.
-                eventDates.add(date);
+                // Record the change on the event timeline.
+                recordLinkEvent(pair, date, status);
 			} else {
 				status.setStatus(SocialNetworkStatus.Enum.INVALID_USERS);
 			}
@@ -647,22 +1277,194 @@ public class SocialNetwork {
 	}
 
 	/**
-	 * Puts the users in the links map with the key as user and the link as
-	 * value.
+	 * Puts the link in the link table under the pair key of its users.
 	 * 
-	 * @param users
-	 *            - the users to put in the map
+	 * @param pair
+	 *            - the pair key of the users in the link
 	 * @param link
 	 *            - the link between the users
 	 * @param status
 	 *            - the status of the social network at this point
 	 */
-	private void putUsersInLinksMap(Set<User> users, Link link,
+	private void putUsersInLinksMap(long pair, Link link,
 			SocialNetworkStatus status) {
-		// When successful, put the user links in the link map.
+		// When successful, put the new link in the link table.
+		if (SocialNetworkStatus.Enum.SUCCESS.equals(status.getStatus())
+				&& userLinks.find(pair) == LinkTable.NO_LINK) {
+			// Add the link as an edge of each of its users.
+			userGraph.addLink(userLinks.add(pair, link), LinkTable.firstOf(pair),
+					LinkTable.secondOf(pair));
+		}
+	}
+
+	/**
+	 * Records a successful change of the link between the given pair of users
+	 * at the given date on the event timeline.
+	 * 
+	 * @param pair
+	 *            - the pair key of the users in the link
+	 * @param date
+	 *            - the date of the link change
+	 * @param status
+	 *            - the status of the link change
+	 */
+	private void recordLinkEvent(long pair, Date date, SocialNetworkStatus status) {
 		if (SocialNetworkStatus.Enum.SUCCESS.equals(status.getStatus())) {
-			// Put set of users and link into user links map.
-			userLinks.put(users, link);
+			eventTimeline.record(date.getTime(), userLinks.find(pair));
+			activityIndex = null;
+			snapshotCache.clear();
+
+			// An event may be dated before trend dates already known, which it changes.
+			neighborhoodTrends.clear();
+		}
+	}
+
+	/**
+	 * Returns the snapshot of the links of the social network active at the
+	 * given date. Snapshots are cached, so every date between the same two
+	 * link events shares one snapshot until the links change again.
+	 * 
+	 * @param date
+	 *            - the date to take the snapshot at
+	 * @return the snapshot of the links active at the given date
+	 * @throws NullPointerException
+	 *             - thrown when input is null
+	 */
+	public GraphSnapshot snapshot(Date date) throws NullPointerException {
+		int rank;
+		GraphSnapshot snapshot;
+		IntList activeLinks;
+
+		LinkedWithUtilities.throwExceptionWhenNull(date);
+
+		rank = eventTimeline.rank(date.getTime());
+		snapshot = snapshotCache.get(rank);
+
+		// Materialize the snapshot from the activity index when not cached.
+		if (snapshot == null) {
+			activeLinks = new IntList();
+			getActivityIndex().linksActiveAt(date.getTime(), activeLinks);
+			snapshot = new GraphSnapshot(userLinks, userGraph.userCount(), activeLinks,
+					date.getTime());
+			snapshotCache.put(rank, snapshot);
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Sets the memory budget of the cache of snapshots, evicting the least
+	 * recently used snapshots that no longer fit.
+	 * 
+	 * @param bytes
+	 *            - the most bytes the cached snapshots may occupy
+	 */
+	public void setSnapshotMemoryBudget(long bytes) {
+		snapshotCache.setBudget(bytes);
+	}
+
+	/**
+	 * Gets the graph of the users at the given time to traverse, which is the
+	 * cached snapshot for that time when there is one and otherwise a view of
+	 * the current adjacency checking the activity of each link.
+	 * 
+	 * @param time
+	 *            - the time in epoch milliseconds
+	 * @return the graph of the users at the given time
+	 */
+	ActiveGraph activeGraph(long time) {
+		GraphSnapshot snapshot = snapshotCache.get(eventTimeline.rank(time));
+
+		if (snapshot != null) {
+			return snapshot;
+		}
+
+		compactIfNeeded();
+		return new LiveGraph(userGraph, userLinks, time);
+	}
+
+	/**
+	 * Returns all the links in the social network that are active at the given
+	 * date.
+	 * 
+	 * @param date
+	 *            - the date to check for link activity on
+	 * @return the links active at the given date
+	 * @throws NullPointerException
+	 *             - thrown when input is null
+	 */
+	public List<Link> activeLinks(Date date) throws NullPointerException {
+		LinkedWithUtilities.throwExceptionWhenNull(date);
+
+		return activeLinks(date, date);
+	}
+
+	/**
+	 * Returns all the links in the social network that are active at some date
+	 * within the given range, each link once.
+	 * 
+	 * @param from
+	 *            - the first date of the range, inclusive
+	 * @param to
+	 *            - the last date of the range, inclusive
+	 * @return the links active during the given range
+	 * @throws NullPointerException
+	 *             - thrown when input is null
+	 */
+	public List<Link> activeLinks(Date from, Date to) throws NullPointerException {
+		IntList activeLinkIndices = new IntList();
+		List<Link> activeLinks = new ArrayList<>();
+		BitSet foundLinks = new BitSet(userLinks.size());
+		int link;
+
+		LinkedWithUtilities.throwExceptionWhenNull(from, to);
+
+		getActivityIndex().linksActiveDuring(from.getTime(), to.getTime(), activeLinkIndices);
+
+		// Add each link once, although it may be active in several intervals.
+		for (int index = 0; index < activeLinkIndices.size(); index++) {
+			link = activeLinkIndices.get(index);
+
+			if (!foundLinks.get(link)) {
+				foundLinks.set(link);
+				activeLinks.add(userLinks.link(link));
+			}
+		}
+
+		return activeLinks;
+	}
+
+	/**
+	 * Gets the index of the intervals of link activity, building it when links
+	 * changed since it was last built.
+	 * 
+	 * @return the index of the intervals of link activity
+	 */
+	IntervalIndex getActivityIndex() {
+		if (activityIndex == null) {
+			activityIndex = new IntervalIndex(userLinks, eventTimeline);
+		}
+		return activityIndex;
+	}
+
+	/**
+	 * Merges the links added since the last compaction into the compressed
+	 * adjacency of the users. Traversals see every link either way; compacting
+	 * after adding many links keeps them fast. When the social network is off
+	 * the heap, the timelines of the links are sealed off the heap as well.
+	 */
+	public void compact() {
+		userGraph.compact(userLinks);
+		userLinks.sealTimelines();
+	}
+
+	/**
+	 * Compacts the adjacency of the users when enough links were added since
+	 * the last compaction.
+	 */
+	private void compactIfNeeded() {
+		if (userGraph.needsCompaction()) {
+			compact();
 		}
 	}
 
@@ -706,32 +1508,22 @@ public class SocialNetwork {
 	 */
 	public boolean isActive(Set<String> ids, Date date)
 			throws NullPointerException {
-		Set<User> users;
+		Link link;
 
 		LinkedWithUtilities.throwExceptionWhenNull(ids, date);
 
-		// Creates a set of users from the set of user ids.
-		users = createUserSetFromIDs(ids);
+		// Find the link between the two users with the input ids.
+		link = userLinks.get(getPairKeyFromIDs(ids));
 
-		/*
-		 * Given the nature of hash sets to eliminate duplicates, if user ids
-		 * were the same, the set would have eliminated the duplicate upon
-		 * adding so the size of the resulting set would not be the same as that
-		 * of the input id set.
-		 */
-		if (users.size() != ids.size()) {
-			return false;
-		}
-
-		// Check if the map of user links contains a link between these users.
-		if (userLinks.containsKey(users)) {
+		// Check if the link table contains a link between these users.
+		if (link != null) {
 
 			/*
 			 * Attempt to determine if the user link is active at the given
 			 * date.
 			 */
 			try {
-				return userLinks.get(users).isActive(date);
+				return link.isActive(date);
 			} catch (UninitializedObjectException uoe) {
 				// Let flow to return false at end.
 				System.err.println("Unable to determine status of user link.");
@@ -749,24 +1541,41 @@ public class SocialNetwork {
 	 * @return a set of users representing the user ids input
 	 */
 	private Set<User> createUserSetFromIDs(Set<String> ids) {
+		return getUsers(ids);
+	}
 
-		// Create a set of users.
-		Set<User> users = new HashSet<>();
+	/**
+	 * Gets the pair key of the two members with the input user ids. When the
+	 * ids do not belong to exactly two members of the network, returns
+	 * LinkTable.NO_PAIR.
+	 * 
+	 * @param ids
+	 *            - the set of user ids to find the pair key of
+	 * @return the pair key of the users or LinkTable.NO_PAIR when the ids are
+	 *         not two members
+	 */
+	private long getPairKeyFromIDs(Set<String> ids) {
+		int first = -1;
+		int second = -1;
+		Integer ordinal;
+
+		if (ids.size() != 2) {
+			return LinkTable.NO_PAIR;
+		}
 
-		// Iterate through set of user IDs.
+		// Find the ordinal of each user id.
 		for (String id : ids) {
-			// Check for each user id in the user set of this social network.
-			USER_SET_LOOP:
-            for (User user : userSet) {
-				// When user's id is the same as id in the input set, add user
-				// to new user set.
-				if (user.getID().equals(id)) {
-					users.add(user);
-					break USER_SET_LOOP;
-				}
+			ordinal = userOrdinals.get(id);
+
+			if (ordinal == null) {
+				return LinkTable.NO_PAIR;
+			} else if (first < 0) {
+				first = ordinal;
+			} else {
+				second = ordinal;
 			}
 		}
 
-		return users;
+		return LinkTable.pairKey(first, second);
 	}
 }
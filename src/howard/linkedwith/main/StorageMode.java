@@ -0,0 +1,24 @@
+/**
+ *
+ */
+package main;
+
+/**
+ * The storage mode of the adjacency and link timelines of a social network.
+ *
+ * @author Shaun Howard
+ */
+public enum StorageMode {
+
+	/**
+	 * Arrays are kept on the Java heap.
+	 */
+	HEAP,
+
+	/**
+	 * The compacted adjacency, the link table and sealed link timelines are
+	 * kept in direct buffers outside of the Java heap, so the garbage
+	 * collector does not trace them.
+	 */
+	OFF_HEAP
+}
@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package main;
+
+/**
+ * The mode of a neighborhood traversal of a social network.
+ *
+ * @author Shaun Howard
+ */
+public enum TraversalMode {
+
+	/**
+	 * Every level is expanded on the calling thread.
+	 */
+	SEQUENTIAL,
+
+	/**
+	 * Every level is split across the threads of the common fork join pool.
+	 */
+	PARALLEL,
+
+	/**
+	 * Levels are expanded on the calling thread until a frontier grows large
+	 * enough to be worth splitting across the common fork join pool.
+	 */
+	AUTOMATIC
+}
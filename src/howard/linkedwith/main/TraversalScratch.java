@@ -0,0 +1,237 @@
+/**
+ *
+ */
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Traversal scratch holds the state of a breadth first traversal over user
+ * ordinals so that it can be reused by every traversal on the same thread.
+ *
+ * Visited users are marked in a bitset, their distances are kept in an int
+ * array and the users are queued in an int array in the order they were
+ * reached. Releasing the scratch clears only the bits of the reached users, so
+ * a traversal costs time and memory in proportion to what it touched rather
+ * than to the size of the network.
+ *
+ * @author Shaun Howard
+ */
+final class TraversalScratch {
+
+	// Scratches of each thread, reused across traversals.
+	private static final ThreadLocal<List<TraversalScratch>> SCRATCH = new ThreadLocal<List<TraversalScratch>>() {
+		@Override
+		protected List<TraversalScratch> initialValue() {
+			return new ArrayList<>();
+		}
+	};
+
+	// Bitset of the visited users.
+	private long[] visited;
+
+	// Distances of the visited users.
+	private int[] distances;
+
+	// Visited users in the order they were reached.
+	private int[] queue;
+
+	// Users each visited user was reached from, only grown once a traversal
+	// records them.
+	private int[] parents;
+
+	// Number of visited users.
+	private int reached;
+
+	// Whether a traversal is using the scratch.
+	private boolean inUse;
+
+	/**
+	 * Constructor to create an empty scratch.
+	 */
+	private TraversalScratch() {
+		this.visited = new long[0];
+		this.distances = new int[0];
+		this.queue = new int[0];
+		this.parents = new int[0];
+		this.reached = 0;
+		this.inUse = false;
+	}
+
+	/**
+	 * Acquires a scratch of the current thread for a traversal over the given
+	 * number of users. A traversal that needs several scratches at once, such
+	 * as a search from both ends, acquires each in turn, and the thread keeps
+	 * every scratch it needed for later traversals.
+	 *
+	 * @param userCount
+	 *            - the number of users to traverse
+	 * @return a cleared scratch with room for the users
+	 */
+	static TraversalScratch acquire(int userCount) {
+		List<TraversalScratch> scratches = SCRATCH.get();
+		TraversalScratch scratch = null;
+
+		for (int index = 0; index < scratches.size(); index++) {
+			if (!scratches.get(index).inUse) {
+				scratch = scratches.get(index);
+				break;
+			}
+		}
+
+		if (scratch == null) {
+			scratch = new TraversalScratch();
+			scratches.add(scratch);
+		}
+
+		scratch.ensureCapacity(userCount);
+		scratch.inUse = true;
+		return scratch;
+	}
+
+	/**
+	 * Visits the given user at the given distance unless it was visited
+	 * before.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param distance
+	 *            - the distance of the user
+	 * @return whether the user was visited for the first time
+	 */
+	boolean visit(int user, int distance) {
+		long bit = 1L << user;
+		int word = user >>> 6;
+
+		if ((visited[word] & bit) != 0) {
+			return false;
+		}
+
+		visited[word] |= bit;
+		distances[user] = distance;
+		queue[reached++] = user;
+		return true;
+	}
+
+	/**
+	 * Visits the given user at the given distance from the given parent
+	 * unless it was visited before, so that the path to the user can be
+	 * followed back.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param distance
+	 *            - the distance of the user
+	 * @param parent
+	 *            - the ordinal of the user it was reached from
+	 * @return whether the user was visited for the first time
+	 */
+	boolean visit(int user, int distance, int parent) {
+		if (parents.length < queue.length) {
+			parents = new int[queue.length];
+		}
+
+		if (!visit(user, distance)) {
+			return false;
+		}
+
+		parents[user] = parent;
+		return true;
+	}
+
+	/**
+	 * Gets the user the given visited user was reached from.
+	 *
+	 * @param user
+	 *            - the ordinal of a user visited with a parent
+	 * @return the ordinal of the parent of the user
+	 */
+	int parent(int user) {
+		return parents[user];
+	}
+
+	/**
+	 * Tallies one more arrival at the given user, visiting it with a tally of
+	 * one the first time and adding one to the tally kept in place of its
+	 * distance after that.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 */
+	void tally(int user) {
+		if (!visit(user, 1)) {
+			distances[user]++;
+		}
+	}
+
+	/**
+	 * Returns whether the given user was visited.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return whether the user was visited
+	 */
+	boolean isVisited(int user) {
+		return (visited[user >>> 6] & (1L << user)) != 0;
+	}
+
+	/**
+	 * Gets the distance of the given visited user.
+	 *
+	 * @param user
+	 *            - the ordinal of a visited user
+	 * @return the distance of the user
+	 */
+	int distance(int user) {
+		return distances[user];
+	}
+
+	/**
+	 * Gets the number of visited users.
+	 *
+	 * @return the number of visited users
+	 */
+	int reached() {
+		return this.reached;
+	}
+
+	/**
+	 * Gets the visited user at the given index in the order they were reached.
+	 *
+	 * @param index
+	 *            - the index of the user, below the number reached
+	 * @return the ordinal of the visited user
+	 */
+	int reachedUser(int index) {
+		return queue[index];
+	}
+
+	/**
+	 * Releases the scratch after a traversal, clearing the bits of the visited
+	 * users.
+	 */
+	void release() {
+		for (int index = 0; index < reached; index++) {
+			visited[queue[index] >>> 6] = 0;
+		}
+
+		reached = 0;
+		inUse = false;
+	}
+
+	/**
+	 * Grows the arrays of the scratch to hold the given number of users.
+	 *
+	 * @param userCount
+	 *            - the number of users to hold
+	 */
+	private void ensureCapacity(int userCount) {
+		if (queue.length < userCount) {
+			visited = Arrays.copyOf(visited, (userCount + 63) >>> 6);
+			distances = new int[userCount];
+			queue = new int[userCount];
+		}
+	}
+}
@@ -10,6 +10,10 @@ import exceptions.UninitializedObjectException;
  * 
  * A user is uniquely identified by an identification number.
  * 
+ * Once added to a social network, a user is a handle to its profile in the
+ * columnar profile store of the network, and the profile fields set before
+ * are moved into the store. Until then the user holds its fields itself.
+ * 
  * @author Shaun Howard
  */
 public class User {
@@ -26,6 +30,12 @@ public class User {
 	// Contact information of user.
 	private String email, phone;
 
+	// Profile store the user is attached to, null while detached.
+	private ProfileStore profiles;
+
+	// Ordinal of the user in the profile store.
+	private int ordinal;
+
 	/**
 	 * Constructs an invalid user.
 	 */
@@ -37,6 +47,8 @@ public class User {
 		this.lastName = null;
 		this.email = null;
 		this.phone = null;
+		this.profiles = null;
+		this.ordinal = -1;
 	}
 
 	/**
@@ -100,7 +112,11 @@ public class User {
 		LinkedWithUtilities.throwExceptionWhenInvalid(isValid());
 		LinkedWithUtilities.throwExceptionWhenNull(name);
 
-		this.firstName = name;
+		if (profiles != null) {
+			profiles.setName(ProfileStore.FIRST_NAME, ordinal, name);
+		} else {
+			this.firstName = name;
+		}
 		return this;
 	}
 
@@ -110,6 +126,9 @@ public class User {
 	 * @return the first name of this user
 	 */
 	public String getFirstName() {
+		if (profiles != null) {
+			return profiles.name(ProfileStore.FIRST_NAME, ordinal);
+		}
 		return this.firstName;
 	}
 
@@ -133,7 +152,11 @@ public class User {
 		LinkedWithUtilities.throwExceptionWhenInvalid(isValid());
 		LinkedWithUtilities.throwExceptionWhenNull(name);
 
-		this.middleName = name;
+		if (profiles != null) {
+			profiles.setName(ProfileStore.MIDDLE_NAME, ordinal, name);
+		} else {
+			this.middleName = name;
+		}
 		return this;
 	}
 
@@ -143,6 +166,9 @@ public class User {
 	 * @return the middle name of this user
 	 */
 	public String getMiddleName() {
+		if (profiles != null) {
+			return profiles.name(ProfileStore.MIDDLE_NAME, ordinal);
+		}
 		return this.middleName;
 	}
 
@@ -166,7 +192,11 @@ public class User {
 		LinkedWithUtilities.throwExceptionWhenInvalid(isValid());
 		LinkedWithUtilities.throwExceptionWhenNull(name);
 
-		this.lastName = name;
+		if (profiles != null) {
+			profiles.setName(ProfileStore.LAST_NAME, ordinal, name);
+		} else {
+			this.lastName = name;
+		}
 		return this;
 	}
 
@@ -176,6 +206,9 @@ public class User {
 	 * @return the last name of this user
 	 */
 	public String getLastName() {
+		if (profiles != null) {
+			return profiles.name(ProfileStore.LAST_NAME, ordinal);
+		}
 		return this.lastName;
 	}
 
@@ -199,7 +232,11 @@ public class User {
 		LinkedWithUtilities.throwExceptionWhenInvalid(isValid());
 		LinkedWithUtilities.throwExceptionWhenNull(email);
 
-		this.email = email;
+		if (profiles != null) {
+			profiles.setText(ProfileStore.EMAIL, ordinal, email);
+		} else {
+			this.email = email;
+		}
 		return this;
 	}
 
@@ -209,6 +246,9 @@ public class User {
 	 * @return the email of this user
 	 */
 	public String getEmail() {
+		if (profiles != null) {
+			return profiles.text(ProfileStore.EMAIL, ordinal);
+		}
 		return this.email;
 	}
 
@@ -232,7 +272,11 @@ public class User {
 		LinkedWithUtilities.throwExceptionWhenInvalid(isValid());
 		LinkedWithUtilities.throwExceptionWhenNull(phone);
 
-		this.phone = phone;
+		if (profiles != null) {
+			profiles.setText(ProfileStore.PHONE, ordinal, phone);
+		} else {
+			this.phone = phone;
+		}
 		return this;
 	}
 
@@ -242,9 +286,42 @@ public class User {
 	 * @return the phone number of this user
 	 */
 	public String getPhoneNumber() {
+		if (profiles != null) {
+			return profiles.text(ProfileStore.PHONE, ordinal);
+		}
 		return this.phone;
 	}
 
+	/**
+	 * Attaches the user to the given profile store under the given ordinal,
+	 * moving its profile fields into the store. A user already attached to a
+	 * profile store stays attached to it.
+	 * 
+	 * @param profiles
+	 *            - the profile store of the social network of the user
+	 * @param ordinal
+	 *            - the ordinal of the user in the social network
+	 */
+	void attach(ProfileStore profiles, int ordinal) {
+		if (this.profiles != null) {
+			return;
+		}
+
+		profiles.setName(ProfileStore.FIRST_NAME, ordinal, firstName);
+		profiles.setName(ProfileStore.MIDDLE_NAME, ordinal, middleName);
+		profiles.setName(ProfileStore.LAST_NAME, ordinal, lastName);
+		profiles.setText(ProfileStore.EMAIL, ordinal, email);
+		profiles.setText(ProfileStore.PHONE, ordinal, phone);
+
+		this.profiles = profiles;
+		this.ordinal = ordinal;
+		this.firstName = null;
+		this.middleName = null;
+		this.lastName = null;
+		this.email = null;
+		this.phone = null;
+	}
+
 	/**
 	 * Returns whether the user is valid or not.
 	 * 
@@ -289,4 +366,16 @@ public class User {
 		return result;
 	}
 
+	/**
+	 * Override the hash code method of Object for this User implementation.
+	 * Hash code is determined from the unique ID of the user so that it is
+	 * consistent with equals.
+	 * 
+	 * @return the hash code of this user
+	 */
+	@Override
+	public int hashCode() {
+		return this.id != null ? this.id.hashCode() : 0;
+	}
+
 }
@@ -0,0 +1,566 @@
+/**
+ *
+ */
+package main;
+
+import java.util.Arrays;
+
+/**
+ * User graph is the adjacency of the users of a social network by their
+ * ordinals.
+ *
+ * Links are kept in compressed sparse row form: the neighbors of a user are a
+ * contiguous row of the neighbor array, delimited by the offsets array, with
+ * the index of the link of each edge in a parallel array. Links added after
+ * the last compaction are held in small per-user pending rows until the next
+ * compaction merges them into the compressed rows, so every link is visible
+ * to traversals as soon as it is added.
+ *
+ * The compressed rows are kept in int stores of the storage mode of the graph,
+ * so they can live outside of the heap. Only the pending rows and the scratch
+ * used to sort a single row during compaction are on the heap.
+ *
+ * @author Shaun Howard
+ */
+class UserGraph {
+
+	// Smallest number of pending edges that triggers a compaction.
+	private static final int MIN_PENDING_EDGES = 64;
+
+	// Least ratio of the lengths of two rows to gallop through the longer one.
+	private static final int GALLOP_RATIO = 16;
+
+	// Storage mode of the compacted rows.
+	private final StorageMode mode;
+
+	// Start of the row of each compacted user in the neighbor arrays.
+	private IntStore offsets;
+
+	// Neighbor ordinals of the compacted rows.
+	private IntStore neighbors;
+
+	// Link indices of the edges of the compacted rows.
+	private IntStore edgeLinks;
+
+	// Number of users with a compacted row.
+	private int compactedUsers;
+
+	// Pending neighbors and link indices of each user, interleaved.
+	private int[][] pendingRows;
+
+	// Number of pending edges of each user.
+	private int[] pendingCounts;
+
+	// Total number of pending edges.
+	private int pendingEdges;
+
+	// Number of users in the graph.
+	private int userCount;
+
+	/**
+	 * Constructor to create a graph without any users that keeps its compacted
+	 * rows in the given storage mode.
+	 *
+	 * @param mode
+	 *            - the storage mode of the compacted rows
+	 */
+	UserGraph(StorageMode mode) {
+		this.mode = mode;
+		this.offsets = IntStore.allocate(mode, 1);
+		this.neighbors = IntStore.allocate(mode, 0);
+		this.edgeLinks = IntStore.allocate(mode, 0);
+		this.compactedUsers = 0;
+		this.pendingRows = new int[16][];
+		this.pendingCounts = new int[16];
+		this.pendingEdges = 0;
+		this.userCount = 0;
+	}
+
+	/**
+	 * Constructor to create an off heap graph over the given compacted rows,
+	 * as read from a graph file.
+	 *
+	 * @param offsets
+	 *            - the start of the row of each user, followed by the number
+	 *            of edges
+	 * @param neighbors
+	 *            - the neighbor ordinals of the rows
+	 * @param edgeLinks
+	 *            - the link indices of the edges of the rows
+	 */
+	UserGraph(IntStore offsets, IntStore neighbors, IntStore edgeLinks) {
+		this.mode = StorageMode.OFF_HEAP;
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+		this.edgeLinks = edgeLinks;
+		this.userCount = offsets.length() - 1;
+		this.compactedUsers = userCount;
+		this.pendingRows = new int[Math.max(16, userCount)][];
+		this.pendingCounts = new int[Math.max(16, userCount)];
+		this.pendingEdges = 0;
+	}
+
+	/**
+	 * Adds a user to the graph under the next ordinal.
+	 *
+	 * @return the ordinal of the added user
+	 */
+	int addUser() {
+		if (userCount == pendingCounts.length) {
+			pendingRows = Arrays.copyOf(pendingRows, userCount * 2);
+			pendingCounts = Arrays.copyOf(pendingCounts, userCount * 2);
+		}
+		return userCount++;
+	}
+
+	/**
+	 * Gets the number of users in the graph.
+	 *
+	 * @return the number of users in the graph
+	 */
+	int userCount() {
+		return this.userCount;
+	}
+
+	/**
+	 * Adds the link of the given index between the two users as a pending
+	 * edge of each user.
+	 *
+	 * @param link
+	 *            - the index of the link
+	 * @param first
+	 *            - the ordinal of one user of the link
+	 * @param second
+	 *            - the ordinal of the other user of the link
+	 */
+	void addLink(int link, int first, int second) {
+		addPendingEdge(first, second, link);
+		addPendingEdge(second, first, link);
+	}
+
+	/**
+	 * Gets the number of links incident to the given user.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return the number of links incident to the user
+	 */
+	int degree(int user) {
+		return compactedDegree(user) + pendingCounts[user];
+	}
+
+	/**
+	 * Gets the neighbor at the given position of the row of a user.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param position
+	 *            - the position in the row, below the degree of the user
+	 * @return the ordinal of the neighbor
+	 */
+	int neighbor(int user, int position) {
+		int compactedDegree = compactedDegree(user);
+
+		if (position < compactedDegree) {
+			return neighbors.get(offsets.get(user) + position);
+		}
+		return pendingRows[user][2 * (position - compactedDegree)];
+	}
+
+	/**
+	 * Gets the link index at the given position of the row of a user.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param position
+	 *            - the position in the row, below the degree of the user
+	 * @return the index of the link to the neighbor
+	 */
+	int link(int user, int position) {
+		int compactedDegree = compactedDegree(user);
+
+		if (position < compactedDegree) {
+			return edgeLinks.get(offsets.get(user) + position);
+		}
+		return pendingRows[user][2 * (position - compactedDegree) + 1];
+	}
+
+	/**
+	 * Intersects the rows of two users, adding the neighbors linked to both of
+	 * them by links active at the given time to the given list in ascending
+	 * order when there is one. The sorted compacted rows are merged in one
+	 * pass, or the longer one is galloped through when it is much longer, and
+	 * each pending edge is searched for in the row of the other user, so the
+	 * cost is in proportion to the degrees of the two users.
+	 *
+	 * @param first
+	 *            - the ordinal of one user
+	 * @param second
+	 *            - the ordinal of the other user
+	 * @param links
+	 *            - the table of links of the social network
+	 * @param time
+	 *            - the time of the links in epoch milliseconds
+	 * @param mutualNeighbors
+	 *            - the list to add the shared neighbors to, or null to only
+	 *            count them
+	 * @return the number of neighbors the users share
+	 */
+	int intersectNeighbors(int first, int second, LinkTable links, long time,
+			IntList mutualNeighbors) {
+		int shortUser = first;
+		int longUser = second;
+		int shortStart, shortEnd, longStart, longEnd;
+		int neighbor, link, step, low, high;
+		int count = 0;
+		boolean pendingShared = false;
+
+		if (compactedDegree(shortUser) > compactedDegree(longUser)) {
+			shortUser = second;
+			longUser = first;
+		}
+
+		shortStart = compactedStart(shortUser);
+		shortEnd = shortStart + compactedDegree(shortUser);
+		longStart = compactedStart(longUser);
+		longEnd = longStart + compactedDegree(longUser);
+
+		if ((long) (shortEnd - shortStart) * GALLOP_RATIO < longEnd - longStart) {
+			for (int index = shortStart; index < shortEnd && longStart < longEnd; index++) {
+				neighbor = neighbors.get(index);
+
+				// Gallop to a step past the neighbor, then search within it.
+				step = 1;
+				while (longStart + step < longEnd && neighbors.get(longStart + step) < neighbor) {
+					step <<= 1;
+				}
+				low = longStart + (step >>> 1);
+				high = Math.min(longStart + step, longEnd - 1);
+				longStart = search(low, high + 1, neighbor);
+
+				if (longStart >= 0) {
+					if (areActive(links, edgeLinks.get(index), edgeLinks.get(longStart), time)) {
+						count++;
+						addNeighbor(mutualNeighbors, neighbor);
+					}
+					longStart++;
+				} else {
+					longStart = -longStart - 1;
+				}
+			}
+		} else {
+			while (shortStart < shortEnd && longStart < longEnd) {
+				if (neighbors.get(shortStart) < neighbors.get(longStart)) {
+					shortStart++;
+				} else if (neighbors.get(shortStart) > neighbors.get(longStart)) {
+					longStart++;
+				} else {
+					if (areActive(links, edgeLinks.get(shortStart), edgeLinks.get(longStart),
+							time)) {
+						count++;
+						addNeighbor(mutualNeighbors, neighbors.get(shortStart));
+					}
+					shortStart++;
+					longStart++;
+				}
+			}
+		}
+
+		/*
+		 * Search the whole row of the second user for each pending edge of the
+		 * first, and the compacted row of the first for each pending edge of
+		 * the second, so every shared neighbor is found exactly once.
+		 */
+		for (int edge = 0; edge < pendingCounts[first]; edge++) {
+			neighbor = pendingRows[first][2 * edge];
+			link = findLink(second, neighbor, true);
+
+			if (link != LinkTable.NO_LINK
+					&& areActive(links, pendingRows[first][2 * edge + 1], link, time)) {
+				count++;
+				addNeighbor(mutualNeighbors, neighbor);
+				pendingShared = true;
+			}
+		}
+		for (int edge = 0; edge < pendingCounts[second]; edge++) {
+			neighbor = pendingRows[second][2 * edge];
+			link = findLink(first, neighbor, false);
+
+			if (link != LinkTable.NO_LINK
+					&& areActive(links, pendingRows[second][2 * edge + 1], link, time)) {
+				count++;
+				addNeighbor(mutualNeighbors, neighbor);
+				pendingShared = true;
+			}
+		}
+
+		if (pendingShared && mutualNeighbors != null) {
+			mutualNeighbors.sort();
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the number of edges not yet merged into the compacted rows.
+	 *
+	 * @return the number of pending edges
+	 */
+	int pendingEdges() {
+		return this.pendingEdges;
+	}
+
+	/**
+	 * Returns whether enough edges are pending that a compaction should run
+	 * before traversing the graph.
+	 *
+	 * @return whether the graph should be compacted
+	 */
+	boolean needsCompaction() {
+		return pendingEdges > MIN_PENDING_EDGES
+				&& pendingEdges > neighbors.length() / 4;
+	}
+
+	/**
+	 * Rebuilds the compacted rows from every link in the given table, merging
+	 * the pending edges in. Each compacted row is sorted by neighbor ordinal.
+	 *
+	 * @param links
+	 *            - the table of links of the social network
+	 */
+	void compact(LinkTable links) {
+		IntStore newOffsets = IntStore.allocate(mode, userCount + 1);
+		IntStore newNeighbors = IntStore.allocate(mode, 2 * links.size());
+		IntStore newEdgeLinks = IntStore.allocate(mode, 2 * links.size());
+		int[] positions = new int[userCount];
+		long[] row;
+		long key;
+		int first, second, position;
+		int maxDegree = 0;
+
+		// Count the degree of every user.
+		for (int link = 0; link < links.size(); link++) {
+			key = links.key(link);
+			positions[LinkTable.firstOf(key)]++;
+			positions[LinkTable.secondOf(key)]++;
+		}
+
+		// Turn the degrees into the start of each row.
+		position = 0;
+		for (int user = 0; user < userCount; user++) {
+			maxDegree = Math.max(maxDegree, positions[user]);
+			newOffsets.set(user, position);
+			position += positions[user];
+			positions[user] = newOffsets.get(user);
+		}
+		newOffsets.set(userCount, position);
+
+		// Place each edge in the row of its user.
+		for (int link = 0; link < links.size(); link++) {
+			key = links.key(link);
+			first = LinkTable.firstOf(key);
+			second = LinkTable.secondOf(key);
+			newNeighbors.set(positions[first], second);
+			newEdgeLinks.set(positions[first]++, link);
+			newNeighbors.set(positions[second], first);
+			newEdgeLinks.set(positions[second]++, link);
+		}
+
+		/*
+		 * Sort each row by neighbor, packing the neighbor above the link index
+		 * in a scratch row so the link indices follow their neighbors.
+		 */
+		row = new long[maxDegree];
+		for (int user = 0; user < userCount; user++) {
+			sortRow(newOffsets.get(user), newOffsets.get(user + 1), row,
+					newNeighbors, newEdgeLinks);
+		}
+
+		offsets = newOffsets;
+		neighbors = newNeighbors;
+		edgeLinks = newEdgeLinks;
+		compactedUsers = userCount;
+
+		// Every pending edge is now part of the compacted rows.
+		Arrays.fill(pendingRows, null);
+		Arrays.fill(pendingCounts, 0);
+		pendingEdges = 0;
+	}
+
+	/**
+	 * Sorts the row between the given edge positions by neighbor ordinal,
+	 * keeping each link index with its neighbor.
+	 *
+	 * @param start
+	 *            - the position of the first edge of the row
+	 * @param end
+	 *            - the position after the last edge of the row
+	 * @param row
+	 *            - scratch with room for the edges of the row
+	 * @param rowNeighbors
+	 *            - the neighbor ordinals of the edges
+	 * @param rowLinks
+	 *            - the link indices of the edges
+	 */
+	private static void sortRow(int start, int end, long[] row, IntStore rowNeighbors,
+			IntStore rowLinks) {
+		int length = end - start;
+
+		for (int edge = 0; edge < length; edge++) {
+			row[edge] = ((long) rowNeighbors.get(start + edge) << 32)
+					| (rowLinks.get(start + edge) & 0xFFFFFFFFL);
+		}
+
+		Arrays.sort(row, 0, length);
+
+		for (int edge = 0; edge < length; edge++) {
+			rowNeighbors.set(start + edge, (int) (row[edge] >>> 32));
+			rowLinks.set(start + edge, (int) row[edge]);
+		}
+	}
+
+	/**
+	 * Gets the number of edges in the compacted row of the given user.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return the number of compacted edges of the user
+	 */
+	private int compactedDegree(int user) {
+		if (user >= compactedUsers) {
+			return 0;
+		}
+		return offsets.get(user + 1) - offsets.get(user);
+	}
+
+	/**
+	 * Gets the position of the first edge of the compacted row of the given
+	 * user.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @return the position of the first compacted edge of the user
+	 */
+	private int compactedStart(int user) {
+		if (user >= compactedUsers) {
+			return 0;
+		}
+		return offsets.get(user);
+	}
+
+	/**
+	 * Searches the compacted neighbors between the given positions for a
+	 * neighbor ordinal by binary search.
+	 *
+	 * @param start
+	 *            - the first position to search
+	 * @param end
+	 *            - the position after the last one to search
+	 * @param neighbor
+	 *            - the ordinal of the neighbor to search for
+	 * @return the position of the neighbor, or (-(insertion point) - 1) when
+	 *         it is not found
+	 */
+	private int search(int start, int end, int neighbor) {
+		int low = start;
+		int high = end - 1;
+		int middle;
+
+		while (low <= high) {
+			middle = (low + high) >>> 1;
+
+			if (neighbors.get(middle) < neighbor) {
+				low = middle + 1;
+			} else if (neighbors.get(middle) > neighbor) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Finds the link between a user and a neighbor in the row of the user.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param neighbor
+	 *            - the ordinal of the neighbor
+	 * @param pending
+	 *            - whether to also scan the pending row of the user
+	 * @return the index of the link or NO_LINK when the row does not hold it
+	 */
+	private int findLink(int user, int neighbor, boolean pending) {
+		int start = compactedStart(user);
+		int position = search(start, start + compactedDegree(user), neighbor);
+
+		if (position >= 0) {
+			return edgeLinks.get(position);
+		}
+
+		for (int edge = 0; pending && edge < pendingCounts[user]; edge++) {
+			if (pendingRows[user][2 * edge] == neighbor) {
+				return pendingRows[user][2 * edge + 1];
+			}
+		}
+		return LinkTable.NO_LINK;
+	}
+
+	/**
+	 * Returns whether both of the given links are active at the given time.
+	 *
+	 * @param links
+	 *            - the table of links of the social network
+	 * @param firstLink
+	 *            - the index of one link
+	 * @param secondLink
+	 *            - the index of the other link
+	 * @param time
+	 *            - the time in epoch milliseconds
+	 * @return whether both links are active at the time
+	 */
+	private static boolean areActive(LinkTable links, int firstLink, int secondLink, long time) {
+		return links.isActiveAt(firstLink, time) && links.isActiveAt(secondLink, time);
+	}
+
+	/**
+	 * Adds a shared neighbor to the given list when there is one.
+	 *
+	 * @param mutualNeighbors
+	 *            - the list of shared neighbors, or null
+	 * @param neighbor
+	 *            - the ordinal of the shared neighbor
+	 */
+	private static void addNeighbor(IntList mutualNeighbors, int neighbor) {
+		if (mutualNeighbors != null) {
+			mutualNeighbors.add(neighbor);
+		}
+	}
+
+	/**
+	 * Appends a pending edge to the pending row of the given user.
+	 *
+	 * @param user
+	 *            - the ordinal of the user
+	 * @param neighbor
+	 *            - the ordinal of the neighbor
+	 * @param link
+	 *            - the index of the link to the neighbor
+	 */
+	private void addPendingEdge(int user, int neighbor, int link) {
+		int[] row = pendingRows[user];
+		int count = pendingCounts[user];
+
+		if (row == null) {
+			row = new int[4];
+		} else if (2 * count == row.length) {
+			row = Arrays.copyOf(row, row.length * 2);
+		}
+
+		row[2 * count] = neighbor;
+		row[2 * count + 1] = link;
+		pendingRows[user] = row;
+		pendingCounts[user] = count + 1;
+		pendingEdges++;
+	}
+}
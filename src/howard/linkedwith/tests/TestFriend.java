@@ -62,4 +62,20 @@ public class TestFriend {
         }
 
     }
+
+    @Test
+    public void testEqualsByUserAndDistance() {
+        User testUser = new User();
+        testUser.setID("12345");
+        friend.set(testUser, 3);
+
+        Friend sameFriend = new Friend();
+        sameFriend.set(testUser, 3);
+        Friend fartherFriend = new Friend();
+        fartherFriend.set(testUser, 4);
+
+        assertEquals(friend, sameFriend);
+        assertEquals(friend.hashCode(), sameFriend.hashCode());
+        assertFalse(friend.equals(fartherFriend));
+    }
 }
@@ -225,6 +225,34 @@ public class TestLink {
         }
     }
 
+    @Test
+    public void testIsActiveManyEvents() {
+        testLink.setUsers(testUsers, status);
+
+        try {
+            assertFalse(testLink.isActive(date1));
+
+            testLink.establish(date1_2, status);
+            testLink.tearDown(date2, status);
+            testLink.establish(date2, status);
+            testLink.tearDown(date2_2, status);
+            assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+            assertEquals(4, testLink.getDates().size());
+
+            assertFalse(testLink.isActive(date1));
+            assertTrue(testLink.isActive(date1_2));
+            assertTrue(testLink.isActive(date2));
+            assertFalse(testLink.isActive(date2_2));
+            assertFalse(testLink.isActive(date3));
+
+            assertEquals(date1_2, testLink.nextEvent(date1));
+            assertEquals(date2_2, testLink.nextEvent(date2));
+            assertNull(testLink.nextEvent(date2_2));
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+    }
+
     @Test
     public void testFirstEvent() {
         testLink.setUsers(testUsers, status);
@@ -5,14 +5,23 @@ package tests;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 import exceptions.UninitializedObjectException;
+import main.Components;
 import main.Friend;
+import main.GraphSnapshot;
+import main.Link;
+import main.Neighborhood;
+import main.NeighborhoodEstimates;
 import main.SocialNetwork;
 import main.SocialNetworkStatus;
+import main.StorageMode;
+import main.TraversalMode;
 import main.User;
 
 import org.junit.Before;
@@ -120,6 +129,20 @@ public class TestSocialNetwork {
         assertEquals(testNetwork.getUser(user3.getID()), user3);
     }
 
+    @Test
+    public void testGetUsers() {
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+
+        Set<String> ids = new HashSet<>();
+        ids.add(user1.getID());
+        ids.add(user2.getID());
+        ids.add(user3.getID());
+
+        assertEquals(testUsersGood, testNetwork.getUsers(ids));
+        assertNull(testNetwork.getUser(user3.getID()));
+    }
+
     @Test
     public void testSmallNeighborhood() {
         Set<Friend> expectedSet = new HashSet<>();
@@ -219,7 +242,7 @@ public class TestSocialNetwork {
     }
 
     @Test
-    public void testInactiveLinksSmallNeighborhood() {
+    public void testCyclicNeighborhood() {
         Set<Friend> expectedSet = new HashSet<>();
         Set<Friend> actualSet = null;
 
@@ -229,39 +252,41 @@ public class TestSocialNetwork {
 
         Friend friend2 = new Friend();
         friend2.set(user2, 1);
+        expectedSet.add(friend2);
 
         Friend friend3 = new Friend();
-        friend3.set(user3, 2);
+        friend3.set(user3, 1);
+        expectedSet.add(friend3);
 
         testNetwork.addUser(user1);
         testNetwork.addUser(user2);
         testNetwork.addUser(user3);
 
         Set<String> userIds1 = new HashSet<String>();
-        Set<String> userIds2 = new HashSet<String>();
         userIds1.add(user1.getID());
         userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
         userIds2.add(user2.getID());
         userIds2.add(user3.getID());
-
+        Set<String> userIds3 = new HashSet<String>();
+        userIds3.add(user1.getID());
+        userIds3.add(user3.getID());
 
         try {
             testNetwork.establishLink(userIds1, date1, status);
-
-            testNetwork.tearDownLink(userIds1, date2, status);
-
             testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.establishLink(userIds3, date1, status);
             actualSet = testNetwork.neighborhood(user1.getID(), date2, status);
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
 
         assertEquals(expectedSet, actualSet);
-        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+        assertEquals(3, actualSet.size());
     }
 
     @Test
-    public void testInactiveLinksMediumNeighborhood() {
+    public void testNeighborhoodAfterCompact() {
         Set<Friend> expectedSet = new HashSet<>();
         Set<Friend> actualSet = null;
 
@@ -277,17 +302,8 @@ public class TestSocialNetwork {
         friend3.set(user3, 2);
         expectedSet.add(friend3);
 
-        Friend friend4 = new Friend();
-        friend4.set(user4, 2);
-
-        Friend friend5 = new Friend();
-        friend5.set(user5, 3);
-
         testNetwork.addUser(user1);
         testNetwork.addUser(user2);
-        testNetwork.addUser(user3);
-        testNetwork.addUser(user4);
-        testNetwork.addUser(user5);
 
         Set<String> userIds1 = new HashSet<String>();
         userIds1.add(user1.getID());
@@ -295,39 +311,33 @@ public class TestSocialNetwork {
         Set<String> userIds2 = new HashSet<String>();
         userIds2.add(user2.getID());
         userIds2.add(user3.getID());
-        Set<String> userIds3 = new HashSet<String>();
-        userIds3.add(user2.getID());
-        userIds3.add(user4.getID());
-        Set<String> userIds4 = new HashSet<String>();
-        userIds4.add(user4.getID());
-        userIds4.add(user5.getID());
 
         try {
             testNetwork.establishLink(userIds1, date1, status);
-            testNetwork.establishLink(userIds2, date1, status);
-            testNetwork.establishLink(userIds3, date1, status);
+            testNetwork.compact();
 
-            testNetwork.tearDownLink(userIds3, date2, status);
+            testNetwork.addUser(user3);
+            testNetwork.establishLink(userIds2, date1, status);
+            actualSet = testNetwork.neighborhood(user1.getID(), date2, status);
+            assertEquals(expectedSet, actualSet);
 
-            testNetwork.establishLink(userIds4, date1, status);
+            testNetwork.compact();
             actualSet = testNetwork.neighborhood(user1.getID(), date2, status);
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
 
         assertEquals(expectedSet, actualSet);
-        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
     }
 
     @Test
-    public void testSmallNeighborhoodTrend() {
-
-        Map<Date, Integer> expectedNeighborhoodTrend = new HashMap<>();
-        Map<Date, Integer> actualNeighborhoodTrend = null;
-
+    public void testInactiveLinksSmallNeighborhood() {
+        Set<Friend> expectedSet = new HashSet<>();
+        Set<Friend> actualSet = null;
 
         Friend friend1 = new Friend();
         friend1.set(user1, 0);
+        expectedSet.add(friend1);
 
         Friend friend2 = new Friend();
         friend2.set(user2, 1);
@@ -346,36 +356,38 @@ public class TestSocialNetwork {
         userIds2.add(user2.getID());
         userIds2.add(user3.getID());
 
-        expectedNeighborhoodTrend.put(date1, 3);
-        expectedNeighborhoodTrend.put(date2, 1);
 
         try {
             testNetwork.establishLink(userIds1, date1, status);
+
+            testNetwork.tearDownLink(userIds1, date2, status);
+
             testNetwork.establishLink(userIds2, date1, status);
-            testNetwork.tearDownLink(userIds2, date2, status);
-            actualNeighborhoodTrend = testNetwork.neighborhoodTrend(user1.getID(), status);
+            actualSet = testNetwork.neighborhood(user1.getID(), date2, status);
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
 
-        assertEquals(expectedNeighborhoodTrend, actualNeighborhoodTrend);
+        assertEquals(expectedSet, actualSet);
         assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
     }
 
     @Test
-    public void testMediumNeighborhoodTrend() {
-
-        Map<Date, Integer> expectedNeighborhoodTrend = new HashMap<>();
-        Map<Date, Integer> actualNeighborhoodTrend = null;
+    public void testInactiveLinksMediumNeighborhood() {
+        Set<Friend> expectedSet = new HashSet<>();
+        Set<Friend> actualSet = null;
 
         Friend friend1 = new Friend();
         friend1.set(user1, 0);
+        expectedSet.add(friend1);
 
         Friend friend2 = new Friend();
         friend2.set(user2, 1);
+        expectedSet.add(friend2);
 
         Friend friend3 = new Friend();
         friend3.set(user3, 2);
+        expectedSet.add(friend3);
 
         Friend friend4 = new Friend();
         friend4.set(user4, 2);
@@ -402,129 +414,1135 @@ public class TestSocialNetwork {
         userIds4.add(user4.getID());
         userIds4.add(user5.getID());
 
-        expectedNeighborhoodTrend.put(date1, 4);
-        expectedNeighborhoodTrend.put(date2, 1);
-        expectedNeighborhoodTrend.put(date3, 1);
-
         try {
             testNetwork.establishLink(userIds1, date1, status);
             testNetwork.establishLink(userIds2, date1, status);
             testNetwork.establishLink(userIds3, date1, status);
-            testNetwork.establishLink(userIds4, date1, status);
 
-            testNetwork.tearDownLink(userIds2, date2, status);
+            testNetwork.tearDownLink(userIds3, date2, status);
 
-            testNetwork.establishLink(userIds2, date3, status);
-            testNetwork.tearDownLink(userIds3, date3, status);
-            actualNeighborhoodTrend = testNetwork.neighborhoodTrend(user1.getID(), status);
+            testNetwork.establishLink(userIds4, date1, status);
+            actualSet = testNetwork.neighborhood(user1.getID(), date2, status);
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
 
-        assertEquals(expectedNeighborhoodTrend, actualNeighborhoodTrend);
+        assertEquals(expectedSet, actualSet);
         assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
     }
 
+    /**
+     * Test that repeated neighborhoods, including ones on a smaller network in
+     * between, reach the same users every time.
+     */
     @Test
-    public void testEstablishLink() {
+    public void testRepeatedNeighborhood() {
+        SocialNetwork smallNetwork = new SocialNetwork();
+        Set<Friend> firstSet = null;
+        Set<Friend> smallSet = null;
+        Set<Friend> secondSet = null;
+
         testNetwork.addUser(user1);
         testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+        smallNetwork.addUser(user5);
+
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
 
         try {
-            testNetwork.establishLink(testTwoUserIDs, date1, status);
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            firstSet = testNetwork.neighborhood(user1.getID(), date2, status);
+            smallSet = smallNetwork.neighborhood(user5.getID(), date2, status);
+            secondSet = testNetwork.neighborhood(user1.getID(), date2, status);
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
-        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+
+        assertEquals(3, firstSet.size());
+        assertEquals(1, smallSet.size());
+        assertEquals(firstSet, secondSet);
     }
 
+    /**
+     * Test the neighborhood of a social network kept off the heap, before and
+     * after its link timelines are sealed by compaction and after a sealed link
+     * is torn down.
+     */
     @Test
-    public void testThreeEstablishLink() {
-        testNetwork.addUser(user1);
-        testNetwork.addUser(user2);
-        testNetwork.addUser(user3);
+    public void testOffHeapNeighborhood() {
+        SocialNetwork offHeapNetwork = new SocialNetwork(StorageMode.OFF_HEAP);
+        Set<Friend> expectedSet = new HashSet<>();
+        Set<Friend> actualSet = null;
+
+        Friend friend1 = new Friend();
+        friend1.set(user1, 0);
+        expectedSet.add(friend1);
+
+        Friend friend2 = new Friend();
+        friend2.set(user2, 1);
+        expectedSet.add(friend2);
+
+        Friend friend3 = new Friend();
+        friend3.set(user3, 2);
+
+        offHeapNetwork.addUser(user1);
+        offHeapNetwork.addUser(user2);
+        offHeapNetwork.addUser(user3);
+
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
 
         try {
-            testNetwork.establishLink(testUserIDs, date1, status);
+            offHeapNetwork.establishLink(userIds1, date1, status);
+            offHeapNetwork.establishLink(userIds2, date1, status);
+            offHeapNetwork.compact();
+            for (Link link : offHeapNetwork.activeLinks(date1)) {
+                assertEquals(2, link.getUsers().size());
+                assertTrue(link.getUsers().contains(user2));
+            }
+
+            offHeapNetwork.tearDownLink(userIds2, date2, status);
+            assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+            assertTrue(offHeapNetwork.isActive(userIds2, date1));
+            assertFalse(offHeapNetwork.isActive(userIds2, date3));
+
+            actualSet = offHeapNetwork.neighborhood(user1.getID(), date3, status);
+            assertEquals(expectedSet, actualSet);
+
+            expectedSet.add(friend3);
+            offHeapNetwork.compact();
+            actualSet = offHeapNetwork.neighborhood(user1.getID(), date1, status);
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
-        assertEquals(SocialNetworkStatus.Enum.INVALID_USERS, status.getStatus());
+
+        assertEquals(expectedSet, actualSet);
     }
 
-    @Test(expected = NullPointerException.class)
-    public void testNullEstablishLink() {
+    /**
+     * Test the counts and lookups of a neighborhood by distance.
+     */
+    @Test
+    public void testNeighborhoodCounts() {
+        Neighborhood neighborhood = null;
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+        testNetwork.addUser(user5);
+
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user1.getID());
+        userIds2.add(user3.getID());
+        Set<String> userIds3 = new HashSet<String>();
+        userIds3.add(user3.getID());
+        userIds3.add(user4.getID());
+
         try {
-            testNetwork.establishLink(null, null, status);
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.establishLink(userIds3, date1, status);
+            neighborhood = testNetwork.neighborhood(user1.getID(), date2, status);
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
+
+        assertEquals(4, neighborhood.size());
+        assertEquals(2, neighborhood.maxDistance());
+        assertEquals(1, neighborhood.countAt(0));
+        assertEquals(2, neighborhood.countAt(1));
+        assertEquals(1, neighborhood.countAt(2));
+        assertEquals(0, neighborhood.countAt(3));
+        assertTrue(neighborhood.contains(user4.getID()));
+        assertFalse(neighborhood.contains(user5.getID()));
+        assertFalse(neighborhood.contains("Nobody"));
+        assertEquals(1, neighborhood.distanceOf(user3.getID()));
+        assertEquals(-1, neighborhood.distanceOf(user5.getID()));
+        assertEquals(new HashSet<Friend>(neighborhood), neighborhood);
     }
 
+    /**
+     * Test counting the members of a neighborhood in total and at each
+     * distance without creating the neighborhood.
+     */
     @Test
-    public void testAlreadyEstablishedLink() {
+    public void testNeighborhoodSizeAndHistogram() {
+        SocialNetworkStatus invalidStatus = new SocialNetworkStatus();
+
         testNetwork.addUser(user1);
         testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
 
-        try {
-            testNetwork.establishLink(testTwoUserIDs, date1, status);
-            assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user1.getID());
+        userIds2.add(user3.getID());
+        Set<String> userIds3 = new HashSet<String>();
+        userIds3.add(user3.getID());
+        userIds3.add(user4.getID());
 
-            testNetwork.establishLink(testTwoUserIDs, date1, status);
-            assertEquals(SocialNetworkStatus.Enum.INVALID_USERS, status.getStatus());
+        try {
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.establishLink(userIds3, date1, status);
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
+
+        assertEquals(4, testNetwork.neighborhoodSize(user1.getID(), date2, 5, status));
+        assertEquals(3, testNetwork.neighborhoodSize(user1.getID(), date2, 1, status));
+        assertEquals(1, testNetwork.neighborhoodSize(user1.getID(), date2, 0, status));
+        assertArrayEquals(new int[] { 1, 2, 1 },
+                testNetwork.neighborhoodDistanceHistogram(user1.getID(), date2, 5, status));
+        assertArrayEquals(new int[] { 1, 1, 1, 1 },
+                testNetwork.neighborhoodDistanceHistogram(user2.getID(), date2, 5, status));
+        assertArrayEquals(new int[] { 1 },
+                testNetwork.neighborhoodDistanceHistogram(user1.getID(), date2, 0, status));
+
+        assertEquals(0, testNetwork.neighborhoodSize(user5.getID(), date2, 5, invalidStatus));
+        assertEquals(SocialNetworkStatus.Enum.INVALID_USERS, invalidStatus.getStatus());
+        assertArrayEquals(new int[0],
+                testNetwork.neighborhoodDistanceHistogram(user1.getID(), date2, -1, status));
+        assertEquals(SocialNetworkStatus.Enum.INVALID_DISTANCE, status.getStatus());
     }
 
+    /**
+     * Test the approximate neighborhood sizes of every user against the exact
+     * sizes of a small network, where the counters are all but exact.
+     */
     @Test
-    public void testTearDownLink() {
+    public void testApproximateNeighborhoodSizes() {
         testNetwork.addUser(user1);
         testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+        testNetwork.addUser(user5);
+
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+        Set<String> userIds3 = new HashSet<String>();
+        userIds3.add(user3.getID());
+        userIds3.add(user4.getID());
 
         try {
-            testNetwork.establishLink(testTwoUserIDs, date1, status);
-            assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
-            testNetwork.tearDownLink(testTwoUserIDs, date2, status);
-            assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
-            testNetwork.tearDownLink(testTwoUserIDs, date1, status);
-            assertEquals(SocialNetworkStatus.Enum.INVALID_DATE, status.getStatus());
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.establishLink(userIds3, date1, status);
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
+
+        NeighborhoodEstimates estimates =
+                testNetwork.approximateNeighborhoodSizes(date2, 2, 10, status);
+        assertEquals(3, estimates.estimateOf(user1.getID()), 0.1);
+        assertEquals(4, estimates.estimateOf(user2.getID()), 0.1);
+        assertEquals(4, estimates.estimateOf(user3.getID()), 0.1);
+        assertEquals(3, estimates.estimateOf(user4.getID()), 0.1);
+        assertEquals(1, estimates.estimateOf(user5.getID()), 0.1);
+        assertEquals(15, estimates.total(), 0.5);
+        assertEquals(10, estimates.precision());
+
+        estimates = testNetwork.approximateNeighborhoodSizes(date2, 5, 30, status);
+        assertEquals(4, estimates.estimateOf(user1.getID()), 0.1);
+        assertEquals(16, estimates.precision());
+
+        estimates = testNetwork.approximateNeighborhoodSizes(date2, -1, 10, status);
+        assertEquals(SocialNetworkStatus.Enum.INVALID_DISTANCE, status.getStatus());
+        assertEquals(0, estimates.estimateOf(user1.getID()), 0);
+
+        estimates = testNetwork.approximateNeighborhoodSizes(date2, -1, 30, status);
+        assertEquals(16, estimates.precision());
     }
 
-    @Test(expected = NullPointerException.class)
-    public void testNullTearDownLink() {
+    /**
+     * Test the neighborhood of a hub linked to many users that are each linked
+     * to one more user, which reaches most of the network within two links, in
+     * every traversal mode.
+     */
+    @Test
+    public void testHubNeighborhood() {
+        Neighborhood neighborhood = null;
+        Neighborhood nearNeighborhood = null;
+        Set<String> userIds;
+        User spoke, rim;
+
+        testNetwork.addUser(user1);
+
         try {
-            testNetwork.tearDownLink(null, null, status);
+            for (int index = 0; index < 40; index++) {
+                spoke = new User();
+                spoke.setID("Spoke" + index);
+                rim = new User();
+                rim.setID("Rim" + index);
+                testNetwork.addUser(spoke);
+                testNetwork.addUser(rim);
+
+                userIds = new HashSet<String>();
+                userIds.add(user1.getID());
+                userIds.add(spoke.getID());
+                testNetwork.establishLink(userIds, date1, status);
+
+                userIds = new HashSet<String>();
+                userIds.add(spoke.getID());
+                userIds.add(rim.getID());
+                testNetwork.establishLink(userIds, date1, status);
+            }
+
+            neighborhood = testNetwork.neighborhood(user1.getID(), date2, status);
+            nearNeighborhood = testNetwork.neighborhood(user1.getID(), date2, 1, status);
+
+            for (TraversalMode mode : TraversalMode.values()) {
+                assertEquals(neighborhood, testNetwork.neighborhood(user1.getID(), date2, 81,
+                        mode, status));
+                assertEquals(nearNeighborhood, testNetwork.neighborhood(user1.getID(), date2, 1,
+                        mode, status));
+            }
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
+
+        assertEquals(81, neighborhood.size());
+        assertEquals(40, neighborhood.countAt(1));
+        assertEquals(40, neighborhood.countAt(2));
+        assertEquals(2, neighborhood.distanceOf("Rim7"));
+        assertEquals(41, nearNeighborhood.size());
+        assertFalse(nearNeighborhood.contains("Rim7"));
     }
 
+    /**
+     * Test the neighborhoods of more users than one batch holds against the
+     * neighborhood of each user alone, with an unknown user among them and
+     * every other rim user left unlinked.
+     */
     @Test
-    public void testIsActive() {
-        assertFalse(testNetwork.isActive(testTwoUserIDs, date2));
+    public void testBatchNeighborhoods() {
+        SocialNetworkStatus batchStatus = new SocialNetworkStatus();
+        Map<String, Neighborhood> neighborhoods = null;
+        List<String> ids = new ArrayList<String>();
+        Set<String> userIds;
+        User spoke, rim;
 
         testNetwork.addUser(user1);
-        testNetwork.addUser(user2);
+        ids.add(user1.getID());
+        ids.add("Unknown");
 
         try {
-            testNetwork.establishLink(testTwoUserIDs, date1, status);
+            for (int index = 0; index < 40; index++) {
+                spoke = new User();
+                spoke.setID("Spoke" + index);
+                rim = new User();
+                rim.setID("Rim" + index);
+                testNetwork.addUser(spoke);
+                testNetwork.addUser(rim);
+                ids.add(spoke.getID());
+                ids.add(rim.getID());
+
+                userIds = new HashSet<String>();
+                userIds.add(user1.getID());
+                userIds.add(spoke.getID());
+                testNetwork.establishLink(userIds, date1, status);
+
+                if (index % 2 == 0) {
+                    userIds = new HashSet<String>();
+                    userIds.add(spoke.getID());
+                    userIds.add(rim.getID());
+                    testNetwork.establishLink(userIds, date1, status);
+                }
+            }
+
+            neighborhoods = testNetwork.neighborhoods(ids, date2, 2, batchStatus);
+
+            assertEquals(82, neighborhoods.size());
+            for (String id : ids) {
+                assertEquals(testNetwork.neighborhood(id, date2, 2, new SocialNetworkStatus()),
+                        neighborhoods.get(id));
+            }
         } catch (UninitializedObjectException e) {
             fail("Unexpected exception was thrown.");
         }
-        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
-        assertTrue(testNetwork.isActive(testTwoUserIDs, date1));
 
-        try {
-            testNetwork.tearDownLink(testTwoUserIDs, date2, status);
-        } catch (UninitializedObjectException e) {
-            fail("Unexpected exception was thrown.");
-        }
-        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
-        assertFalse(testNetwork.isActive(testTwoUserIDs, date2));
+        assertTrue(neighborhoods.get("Unknown").isEmpty());
+        assertEquals(SocialNetworkStatus.Enum.INVALID_USERS, batchStatus.getStatus());
+        assertEquals(61, neighborhoods.get(user1.getID()).size());
+        assertEquals(3, neighborhoods.get("Rim0").size());
+        assertEquals(1, neighborhoods.get("Rim1").size());
+    }
+
+    /**
+     * Test that the neighborhoods of users within a negative distance are
+     * rejected even when an unknown user is among them.
+     */
+    @Test
+    public void testNeighborhoodsNegativeDistance() {
+        List<String> ids = new ArrayList<String>();
+        Map<String, Neighborhood> neighborhoods;
+
+        testNetwork.addUser(user1);
+        ids.add(user1.getID());
+        ids.add("Unknown");
+
+        neighborhoods = testNetwork.neighborhoods(ids, date2, -1, status);
+
+        assertEquals(SocialNetworkStatus.Enum.INVALID_DISTANCE, status.getStatus());
+        assertTrue(neighborhoods.isEmpty());
+    }
+
+    @Test
+    public void testSmallNeighborhoodTrend() {
+
+        Map<Date, Integer> expectedNeighborhoodTrend = new HashMap<>();
+        Map<Date, Integer> actualNeighborhoodTrend = null;
+
+
+        Friend friend1 = new Friend();
+        friend1.set(user1, 0);
+
+        Friend friend2 = new Friend();
+        friend2.set(user2, 1);
+
+        Friend friend3 = new Friend();
+        friend3.set(user3, 2);
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+
+        Set<String> userIds1 = new HashSet<String>();
+        Set<String> userIds2 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+
+        expectedNeighborhoodTrend.put(date1, 3);
+        expectedNeighborhoodTrend.put(date2, 2);
+
+        try {
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.tearDownLink(userIds2, date2, status);
+            actualNeighborhoodTrend = testNetwork.neighborhoodTrend(user1.getID(), status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(expectedNeighborhoodTrend, actualNeighborhoodTrend);
+        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+    }
+
+    @Test
+    public void testMediumNeighborhoodTrend() {
+
+        Map<Date, Integer> expectedNeighborhoodTrend = new HashMap<>();
+        Map<Date, Integer> actualNeighborhoodTrend = null;
+
+        Friend friend1 = new Friend();
+        friend1.set(user1, 0);
+
+        Friend friend2 = new Friend();
+        friend2.set(user2, 1);
+
+        Friend friend3 = new Friend();
+        friend3.set(user3, 2);
+
+        Friend friend4 = new Friend();
+        friend4.set(user4, 2);
+
+        Friend friend5 = new Friend();
+        friend5.set(user5, 3);
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+        testNetwork.addUser(user5);
+
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+        Set<String> userIds3 = new HashSet<String>();
+        userIds3.add(user2.getID());
+        userIds3.add(user4.getID());
+        Set<String> userIds4 = new HashSet<String>();
+        userIds4.add(user4.getID());
+        userIds4.add(user5.getID());
+
+        expectedNeighborhoodTrend.put(date1, 5);
+        expectedNeighborhoodTrend.put(date2, 4);
+        expectedNeighborhoodTrend.put(date3, 3);
+
+        try {
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.establishLink(userIds3, date1, status);
+            testNetwork.establishLink(userIds4, date1, status);
+
+            testNetwork.tearDownLink(userIds2, date2, status);
+
+            testNetwork.establishLink(userIds2, date3, status);
+            testNetwork.tearDownLink(userIds3, date3, status);
+            actualNeighborhoodTrend = testNetwork.neighborhoodTrend(user1.getID(), status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(expectedNeighborhoodTrend, actualNeighborhoodTrend);
+        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+    }
+
+    @Test
+    public void testRangeNeighborhoodTrend() {
+
+        Map<Date, Integer> expectedNeighborhoodTrend = new HashMap<>();
+        SortedMap<Date, Integer> actualNeighborhoodTrend = null;
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+
+        Set<String> userIds1 = new HashSet<String>();
+        Set<String> userIds2 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+
+        expectedNeighborhoodTrend.put(date2, 2);
+        expectedNeighborhoodTrend.put(date3, 3);
+
+        try {
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.tearDownLink(userIds2, date2, status);
+            testNetwork.establishLink(userIds2, date3, status);
+            actualNeighborhoodTrend = testNetwork.neighborhoodTrend(user1.getID(),
+                    date2, date3, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(expectedNeighborhoodTrend, actualNeighborhoodTrend);
+        assertEquals(date2, actualNeighborhoodTrend.firstKey());
+        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+    }
+
+    /**
+     * Test the users whose neighborhoods grew the most between two dates,
+     * with a user whose neighborhood shrank and ties ranked by when the users
+     * were added.
+     */
+    @Test
+    public void testTrendingUsers() {
+
+        Map<String, Integer> trendingUsers = null;
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+        testNetwork.addUser(user5);
+
+        Set<String> userIds1 = new HashSet<String>();
+        Set<String> userIds2 = new HashSet<String>();
+        Set<String> userIds3 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+        userIds3.add(user4.getID());
+        userIds3.add(user5.getID());
+
+        try {
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds3, date1, status);
+            testNetwork.establishLink(userIds2, date2, status);
+            testNetwork.tearDownLink(userIds3, date2, status);
+            trendingUsers = testNetwork.trendingUsers(date1, date3, 4);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(Arrays.asList(user3.getID(), user1.getID(), user2.getID(), user4.getID()),
+                new ArrayList<String>(trendingUsers.keySet()));
+        assertEquals(Integer.valueOf(2), trendingUsers.get(user3.getID()));
+        assertEquals(Integer.valueOf(1), trendingUsers.get(user1.getID()));
+        assertEquals(Integer.valueOf(-1), trendingUsers.get(user4.getID()));
+        assertTrue(testNetwork.trendingUsers(date1, date3, 0).isEmpty());
+        assertEquals(5, testNetwork.trendingUsers(date1, date3, Integer.MAX_VALUE).size());
+    }
+
+    /**
+     * Test that a neighborhood trend changes when other links are established
+     * at a date of the trend and at a date before the dates of the trend.
+     */
+    @Test
+    public void testNeighborhoodTrendAfterEarlierLinks() {
+
+        Map<Date, Integer> expectedNeighborhoodTrend = new HashMap<>();
+        Map<Date, Integer> firstNeighborhoodTrend = null;
+        Map<Date, Integer> secondNeighborhoodTrend = null;
+        Map<Date, Integer> actualNeighborhoodTrend = null;
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+
+        Set<String> userIds1 = new HashSet<String>();
+        Set<String> userIds2 = new HashSet<String>();
+        Set<String> userIds3 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+        userIds3.add(user3.getID());
+        userIds3.add(user4.getID());
+
+        expectedNeighborhoodTrend.put(date1, 1);
+        expectedNeighborhoodTrend.put(date2, 4);
+
+        try {
+            testNetwork.establishLink(userIds1, date2, status);
+            firstNeighborhoodTrend = new HashMap<>(testNetwork.neighborhoodTrend(user1.getID(),
+                    status));
+            testNetwork.establishLink(userIds2, date2, status);
+            secondNeighborhoodTrend = new HashMap<>(testNetwork.neighborhoodTrend(user1.getID(),
+                    status));
+            testNetwork.establishLink(userIds3, date1, status);
+            actualNeighborhoodTrend = testNetwork.neighborhoodTrend(user1.getID(), status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(Collections.singletonMap(date2, 2), firstNeighborhoodTrend);
+        assertEquals(Collections.singletonMap(date2, 3), secondNeighborhoodTrend);
+        assertEquals(expectedNeighborhoodTrend, actualNeighborhoodTrend);
+    }
+
+    @Test
+    public void testEstablishLink() {
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+
+        try {
+            testNetwork.establishLink(testTwoUserIDs, date1, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+    }
+
+    @Test
+    public void testThreeEstablishLink() {
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+
+        try {
+            testNetwork.establishLink(testUserIDs, date1, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+        assertEquals(SocialNetworkStatus.Enum.INVALID_USERS, status.getStatus());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullEstablishLink() {
+        try {
+            testNetwork.establishLink(null, null, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+    }
+
+    @Test
+    public void testAlreadyEstablishedLink() {
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+
+        try {
+            testNetwork.establishLink(testTwoUserIDs, date1, status);
+            assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+
+            testNetwork.establishLink(testTwoUserIDs, date1, status);
+            assertEquals(SocialNetworkStatus.Enum.INVALID_USERS, status.getStatus());
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+    }
+
+    @Test
+    public void testTearDownLink() {
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+
+        try {
+            testNetwork.establishLink(testTwoUserIDs, date1, status);
+            assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+            testNetwork.tearDownLink(testTwoUserIDs, date2, status);
+            assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+            testNetwork.tearDownLink(testTwoUserIDs, date1, status);
+            assertEquals(SocialNetworkStatus.Enum.INVALID_DATE, status.getStatus());
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullTearDownLink() {
+        try {
+            testNetwork.tearDownLink(null, null, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+    }
+
+    @Test
+    public void testIsActive() {
+        assertFalse(testNetwork.isActive(testTwoUserIDs, date2));
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+
+        try {
+            testNetwork.establishLink(testTwoUserIDs, date1, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+        assertTrue(testNetwork.isActive(testTwoUserIDs, date1));
+
+        try {
+            testNetwork.tearDownLink(testTwoUserIDs, date2, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+        assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+        assertFalse(testNetwork.isActive(testTwoUserIDs, date2));
+    }
+
+    @Test
+    public void testActiveLinks() {
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+
+        try {
+            testNetwork.establishLink(testTwoUserIDs, date1, status);
+            testNetwork.tearDownLink(testTwoUserIDs, date2, status);
+            testNetwork.establishLink(userIds2, date2, status);
+            testNetwork.establishLink(testTwoUserIDs, date3, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(1, testNetwork.activeLinks(date1).size());
+        assertEquals(1, testNetwork.activeLinks(date2).size());
+        assertEquals(2, testNetwork.activeLinks(date3).size());
+        assertEquals(2, testNetwork.activeLinks(date1, date2).size());
+        assertEquals(2, testNetwork.activeLinks(date1, date3).size());
+    }
+
+    @Test
+    public void testSnapshot() {
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+
+        try {
+            testNetwork.establishLink(testTwoUserIDs, date1, status);
+            testNetwork.establishLink(userIds2, date2, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        GraphSnapshot snapshot = testNetwork.snapshot(date1);
+        assertEquals(1, snapshot.linkCount());
+        assertEquals(date1, snapshot.getDate());
+        assertSame(snapshot, testNetwork.snapshot(new Date(date1.getTime() + 1)));
+        assertEquals(2, testNetwork.snapshot(date3).linkCount());
+
+        try {
+            testNetwork.tearDownLink(userIds2, date3, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+        assertEquals(1, testNetwork.snapshot(date3).linkCount());
+
+        testNetwork.setSnapshotMemoryBudget(0);
+        assertTrue(testNetwork.snapshot(date1) != testNetwork.snapshot(date1));
+    }
+
+    /**
+     * Test the components of the users while links are active and after one
+     * of them is torn down.
+     */
+    @Test
+    public void testComponents() {
+        Components components = null;
+        Components laterComponents = null;
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+
+        try {
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.tearDownLink(userIds2, date2, status);
+            components = testNetwork.components(date1);
+            laterComponents = testNetwork.components(date3);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(2, components.count());
+        assertEquals(components.componentOf(user1.getID()), components.componentOf(user3.getID()));
+        assertEquals(3, components.sizeOf(user2.getID()));
+        assertEquals(1, components.sizeOf(user4.getID()));
+        assertEquals(user1, components.firstUser(components.componentOf(user3.getID())));
+        assertEquals(-1, components.componentOf(user5.getID()));
+
+        assertEquals(3, laterComponents.count());
+        assertEquals(2, laterComponents.sizeOf(user1.getID()));
+        assertEquals(1, laterComponents.sizeOf(user3.getID()));
+    }
+
+    /**
+     * Test the distance between users along a chain of links, within and
+     * beyond the max distance, after a link is torn down and for an unknown
+     * user.
+     */
+    @Test
+    public void testDistance() {
+        SocialNetworkStatus distanceStatus = new SocialNetworkStatus();
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+        Set<String> userIds3 = new HashSet<String>();
+        userIds3.add(user3.getID());
+        userIds3.add(user4.getID());
+
+        try {
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.establishLink(userIds3, date1, status);
+            testNetwork.tearDownLink(userIds2, date3, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(0, testNetwork.distance(user1.getID(), user1.getID(), date2, 5, distanceStatus));
+        assertEquals(1, testNetwork.distance(user1.getID(), user2.getID(), date2, 5, distanceStatus));
+        assertEquals(3, testNetwork.distance(user1.getID(), user4.getID(), date2, 5, distanceStatus));
+        assertEquals(3, testNetwork.distance(user4.getID(), user1.getID(), date2, 3, distanceStatus));
+        assertEquals(-1, testNetwork.distance(user1.getID(), user4.getID(), date2, 2, distanceStatus));
+        assertEquals(-1, testNetwork.distance(user1.getID(), user4.getID(), date3, 5, distanceStatus));
+
+        assertEquals(-1, testNetwork.distance(user1.getID(), user5.getID(), date2, 5, distanceStatus));
+        assertEquals(SocialNetworkStatus.Enum.INVALID_USERS, distanceStatus.getStatus());
+    }
+
+    /**
+     * Test the path between users along a chain of links, within and beyond
+     * the max distance, after a link is torn down and for an unknown user.
+     */
+    @Test
+    public void testPath() {
+        SocialNetworkStatus pathStatus = new SocialNetworkStatus();
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+        Set<String> userIds3 = new HashSet<String>();
+        userIds3.add(user3.getID());
+        userIds3.add(user4.getID());
+
+        try {
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.establishLink(userIds3, date1, status);
+            testNetwork.tearDownLink(userIds2, date3, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(Arrays.asList(user1),
+                testNetwork.path(user1.getID(), user1.getID(), date2, pathStatus));
+        assertEquals(Arrays.asList(user1, user2, user3, user4),
+                testNetwork.path(user1.getID(), user4.getID(), date2, pathStatus));
+        assertEquals(Arrays.asList(user4, user3, user2, user1),
+                testNetwork.path(user4.getID(), user1.getID(), date2, 3, pathStatus));
+        assertTrue(testNetwork.path(user1.getID(), user4.getID(), date2, 2, pathStatus).isEmpty());
+        assertTrue(testNetwork.path(user1.getID(), user4.getID(), date3, pathStatus).isEmpty());
+
+        assertTrue(testNetwork.path(user1.getID(), user5.getID(), date2, pathStatus).isEmpty());
+        assertEquals(SocialNetworkStatus.Enum.INVALID_USERS, pathStatus.getStatus());
+    }
+
+    /**
+     * Test the mutual friends of two users and their count while links are
+     * active and after one of them is torn down, and for an unknown user.
+     */
+    @Test
+    public void testMutualFriends() {
+        SocialNetworkStatus mutualStatus = new SocialNetworkStatus();
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+
+        String[][] pairs = { { user1.getID(), user2.getID() }, { user1.getID(), user3.getID() },
+                { user2.getID(), user3.getID() }, { user2.getID(), user4.getID() },
+                { user1.getID(), user4.getID() } };
+
+        try {
+            for (String[] pair : pairs) {
+                testNetwork.establishLink(new HashSet<String>(Arrays.asList(pair)), date1, status);
+            }
+            testNetwork.tearDownLink(new HashSet<String>(Arrays.asList(pairs[4])), date3, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(Arrays.asList(user3, user4),
+                testNetwork.mutualFriends(user1.getID(), user2.getID(), date2, mutualStatus));
+        assertEquals(Arrays.asList(user1, user2),
+                testNetwork.mutualFriends(user3.getID(), user4.getID(), date2, mutualStatus));
+        assertEquals(2, testNetwork.mutualFriendCount(user2.getID(), user1.getID(), date2, mutualStatus));
+        assertEquals(Arrays.asList(user3),
+                testNetwork.mutualFriends(user1.getID(), user2.getID(), date3, mutualStatus));
+        assertEquals(1, testNetwork.mutualFriendCount(user3.getID(), user4.getID(), date3, mutualStatus));
+
+        assertTrue(testNetwork.mutualFriends(user1.getID(), user5.getID(), date2, mutualStatus).isEmpty());
+        assertEquals(SocialNetworkStatus.Enum.INVALID_USERS, mutualStatus.getStatus());
+    }
+
+    /**
+     * Test the users recommended to a user by the number of friends they share,
+     * the order of users sharing as many friends and a limit on the count.
+     */
+    @Test
+    public void testRecommend() {
+        SocialNetworkStatus recommendStatus = new SocialNetworkStatus();
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+        testNetwork.addUser(user4);
+
+        String[][] pairs = { { user1.getID(), user2.getID() }, { user1.getID(), user3.getID() },
+                { user2.getID(), user4.getID() }, { user3.getID(), user4.getID() } };
+
+        try {
+            for (String[] pair : pairs) {
+                testNetwork.establishLink(new HashSet<String>(Arrays.asList(pair)), date1, status);
+            }
+            testNetwork.addUser(user5);
+            testNetwork.establishLink(new HashSet<String>(Arrays.asList(user3.getID(), user5.getID())),
+                    date1, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertEquals(Arrays.asList(user4, user5),
+                testNetwork.recommend(user1.getID(), date2, 5, recommendStatus));
+        assertEquals(Arrays.asList(user4),
+                testNetwork.recommend(user1.getID(), date2, 1, recommendStatus));
+        assertEquals(Arrays.asList(user4, user5),
+                testNetwork.recommend(user1.getID(), date2, Integer.MAX_VALUE, recommendStatus));
+        assertEquals(Arrays.asList(user1, user4),
+                testNetwork.recommend(user5.getID(), date2, 5, recommendStatus));
+        assertTrue(testNetwork.recommend(user1.getID(), date2, 0, recommendStatus).isEmpty());
+
+        User unknownUser = new User();
+        unknownUser.setID("Unknown");
+        assertTrue(testNetwork.recommend(unknownUser.getID(), date2, 5, recommendStatus).isEmpty());
+        assertEquals(SocialNetworkStatus.Enum.INVALID_USERS, recommendStatus.getStatus());
+    }
+
+    @Test
+    public void testIsActiveAfterNeighborhood() {
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+
+        Set<String> singleUserID = new HashSet<>();
+        singleUserID.add(user1.getID());
+
+        try {
+            testNetwork.establishLink(testTwoUserIDs, date1, status);
+            testNetwork.neighborhood(user1.getID(), date2, status);
+            testNetwork.neighborhood(user2.getID(), date2, status);
+        } catch (UninitializedObjectException e) {
+            fail("Unexpected exception was thrown.");
+        }
+
+        assertTrue(testNetwork.isActive(testTwoUserIDs, date2));
+        assertFalse(testNetwork.isActive(singleUserID, date2));
+        assertFalse(testNetwork.isActive(testUserIDs, date2));
+    }
+
+    /**
+     * Test saving a social network to a graph file and opening it again, then
+     * changing the opened social network.
+     */
+    @Test
+    public void testSaveAndOpen() {
+        SocialNetwork openedNetwork = null;
+        Set<Friend> expectedSet = null;
+        Set<Friend> actualSet = null;
+        File file = null;
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+
+        try {
+            user1.setFirstName("Shaun").setEmail("shaun@example.com");
+            testNetwork.establishLink(userIds1, date1, status);
+            testNetwork.establishLink(userIds2, date1, status);
+            testNetwork.tearDownLink(userIds2, date2, status);
+            expectedSet = testNetwork.neighborhood(user1.getID(), date1, status);
+
+            file = File.createTempFile("network", ".graph");
+            testNetwork.save(file);
+            openedNetwork = SocialNetwork.open(file);
+
+            assertEquals("Shaun", openedNetwork.getUser(user1.getID()).getFirstName());
+            assertEquals("shaun@example.com", openedNetwork.getUser(user1.getID()).getEmail());
+            assertNull(openedNetwork.getUser(user2.getID()).getFirstName());
+            assertTrue(openedNetwork.isActive(userIds2, date1));
+            assertFalse(openedNetwork.isActive(userIds2, date2));
+            actualSet = openedNetwork.neighborhood(user1.getID(), date1, status);
+            assertEquals(expectedSet, actualSet);
+
+            openedNetwork.establishLink(userIds2, date3, status);
+            assertEquals(SocialNetworkStatus.Enum.SUCCESS, status.getStatus());
+            assertTrue(openedNetwork.isActive(userIds2, date3));
+            assertFalse(testNetwork.isActive(userIds2, date3));
+        } catch (UninitializedObjectException | IOException e) {
+            fail("Unexpected exception was thrown.");
+        } finally {
+            if (file != null) {
+                file.delete();
+            }
+        }
+
+        assertEquals(3, actualSet.size());
+    }
+
+    /**
+     * Test saving an opened social network back to the graph file it was
+     * opened from, then opening the file again.
+     */
+    @Test
+    public void testSaveToOpenedFile() {
+        SocialNetwork openedNetwork = null;
+        SocialNetwork reopenedNetwork = null;
+        File file = null;
+
+        testNetwork.addUser(user1);
+        testNetwork.addUser(user2);
+        testNetwork.addUser(user3);
+
+        Set<String> userIds1 = new HashSet<String>();
+        userIds1.add(user1.getID());
+        userIds1.add(user2.getID());
+        Set<String> userIds2 = new HashSet<String>();
+        userIds2.add(user2.getID());
+        userIds2.add(user3.getID());
+
+        try {
+            testNetwork.establishLink(userIds1, date1, status);
+
+            file = File.createTempFile("network", ".graph");
+            testNetwork.save(file);
+            openedNetwork = SocialNetwork.open(file);
+            openedNetwork.save(file);
+            openedNetwork.establishLink(userIds2, date2, status);
+            openedNetwork.save(file);
+
+            assertTrue(openedNetwork.isActive(userIds1, date1));
+            assertTrue(openedNetwork.isActive(userIds2, date2));
+
+            reopenedNetwork = SocialNetwork.open(file);
+            assertTrue(reopenedNetwork.isActive(userIds1, date1));
+            assertTrue(reopenedNetwork.isActive(userIds2, date2));
+            assertFalse(reopenedNetwork.isActive(userIds2, date1));
+            assertEquals(3, reopenedNetwork.neighborhood(user1.getID(), date2, status).size());
+        } catch (UninitializedObjectException | IOException e) {
+            fail("Unexpected exception was thrown.");
+        } finally {
+            if (file != null) {
+                file.delete();
+            }
+        }
     }
 
 }
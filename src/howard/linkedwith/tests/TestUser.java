@@ -5,6 +5,7 @@ package tests;
 
 import static org.junit.Assert.*;
 import exceptions.UninitializedObjectException;
+import main.SocialNetwork;
 import main.User;
 
 import org.junit.Before;
@@ -176,4 +177,33 @@ public class TestUser {
 				"ShaunHoward", testUser.toString());
 	}
 
+	@Test
+	public void testProfileAfterAddUser() {
+		SocialNetwork network = new SocialNetwork();
+		User namesake = new User();
+		namesake.setID("67890");
+
+		try {
+			testUser2.setFirstName("Shaun").setLastName("Howard").setEmail("shaun@example.com");
+			network.addUser(testUser2);
+			network.addUser(namesake);
+			namesake.setFirstName("Shaun").setPhoneNumber("555-1234");
+
+			testUser2.setEmail("sh@example.com");
+			assertEquals("sh@example.com", testUser2.getEmail());
+			testUser2.setEmail("shaun.howard@example.com");
+			assertEquals("shaun.howard@example.com", testUser2.getEmail());
+		} catch (NullPointerException | UninitializedObjectException e) {
+			fail("Failed to set the profile of the test users.");
+		}
+
+		assertEquals("Shaun", testUser2.getFirstName());
+		assertEquals(null, testUser2.getMiddleName());
+		assertEquals("Howard", testUser2.getLastName());
+		assertEquals(null, testUser2.getPhoneNumber());
+		assertEquals("Shaun", namesake.getFirstName());
+		assertEquals("555-1234", namesake.getPhoneNumber());
+		assertEquals(null, namesake.getEmail());
+	}
+
 }